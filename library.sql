@@ -22,7 +22,14 @@ CREATE TABLE books (
     genre VARCHAR(50),
     availability BOOLEAN DEFAULT TRUE,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    -- Búsquedas por prefijo de autor (y título) y por título
+    INDEX idx_books_author_title (author, title),
+    INDEX idx_books_title (title),
+    -- Filtros por género y disponibilidad
+    INDEX idx_books_genre_availability (genre, availability),
+    -- Búsqueda por palabras en título y autor
+    FULLTEXT INDEX ft_books_title_author (title, author)
 );
 
 -- TABLA: prestamos
@@ -33,8 +40,48 @@ CREATE TABLE loans (
     user_id INT NOT NULL,
     loan_date DATE NOT NULL,
     return_date DATE NOT NULL,
+    -- Momento de la devolución; NULL mientras el préstamo está activo
+    returned_at TIMESTAMP NULL,
     FOREIGN KEY (book_id) REFERENCES books(id) ON DELETE CASCADE,
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    -- Préstamo activo de un libro y préstamos activos de un usuario
+    INDEX idx_loans_book_returned (book_id, returned_at),
+    INDEX idx_loans_user_returned (user_id, returned_at),
+    -- Historial de un usuario por fecha, con las columnas que se leen de loans
+    INDEX idx_loans_user_date (user_id, loan_date, book_id, return_date, returned_at),
+    -- Préstamos activos por fecha de devolución (revisión de vencidos)
+    INDEX idx_loans_returned_due (returned_at, return_date, id)
+);
+
+-- TABLA: puntos de control
+-- Último registro procesado por cada tarea programada.
+CREATE TABLE job_checkpoints (
+    name VARCHAR(50) PRIMARY KEY,
+    last_date DATE NOT NULL,
+    last_id BIGINT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- TABLA: préstamos vencidos
+-- Préstamos activos que pasaron su fecha de devolución, guardados por la revisión diaria.
+CREATE TABLE overdue_loans (
+    loan_id INT PRIMARY KEY,
+    book_id INT NOT NULL,
+    user_id INT NOT NULL,
+    return_date DATE NOT NULL,
+    detected_at TIMESTAMP NOT NULL,
+    FOREIGN KEY (loan_id) REFERENCES loans(id) ON DELETE CASCADE
+);
+
+-- TABLA: outbox
+-- Cambios de libros y préstamos pendientes de enviar a analítica.
+CREATE TABLE outbox_events (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    aggregate_type VARCHAR(20) NOT NULL,
+    aggregate_id BIGINT NOT NULL,
+    event_type VARCHAR(30) NOT NULL,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL
 );
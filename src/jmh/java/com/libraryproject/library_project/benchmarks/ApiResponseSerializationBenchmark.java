@@ -0,0 +1,56 @@
+package com.libraryproject.library_project.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryproject.library_project.config.JacksonConfig;
+import com.libraryproject.library_project.dto.LoanDTO;
+import com.libraryproject.library_project.utils.ApiResponse;
+
+// Serialización de la respuesta de listLoans, como la escribe Spring MVC
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApiResponseSerializationBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private ApiResponse<List<LoanDTO>> response;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Mismo constructor que el ObjectMapper de la aplicación: fechas ISO, módulos
+        // registrados y el filtro de campos de JacksonConfig que pasa por cada LoanDTO
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        new JacksonConfig().sparseFieldsetCustomizer().customize(builder);
+        objectMapper = builder.build();
+        response = new ApiResponse<>("Los préstamos fueron consultados con éxito.", LoanFixtures.loans(size));
+    }
+
+    @Benchmark
+    public byte[] serializeLoans() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
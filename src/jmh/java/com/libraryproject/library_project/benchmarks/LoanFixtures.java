@@ -0,0 +1,26 @@
+package com.libraryproject.library_project.benchmarks;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.libraryproject.library_project.dto.LoanDTO;
+
+// Datos de préstamos para los benchmarks, con tamaños de texto realistas
+final class LoanFixtures {
+
+    private LoanFixtures() {
+    }
+
+    static List<LoanDTO> loans(int count) {
+        List<LoanDTO> loans = new ArrayList<>(count);
+        LocalDate loanDate = LocalDate.parse("2025-02-25");
+        for (int i = 0; i < count; i++) {
+            long userId = 1_000_000L + i % 5_000;
+            loans.add(new LoanDTO((long) i + 1, "Usuario " + userId, "usuario" + userId + "@example.com", userId,
+                    "3001234567", "Calle " + (i % 100) + " # 10-20", (long) i % 20_000 + 1, loanDate,
+                    loanDate.plusDays(15)));
+        }
+        return loans;
+    }
+}
@@ -0,0 +1,129 @@
+package com.libraryproject.library_project.benchmarks;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.libraryproject.library_project.LibraryProjectApplication;
+import com.libraryproject.library_project.dto.LoanDTO;
+import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.entities.Loan;
+import com.libraryproject.library_project.entities.User;
+import com.libraryproject.library_project.repositories.BookRepository;
+import com.libraryproject.library_project.repositories.LoanRepository;
+import com.libraryproject.library_project.repositories.UserRepository;
+import com.libraryproject.library_project.services.LoanService;
+import com.libraryproject.library_project.utils.ApiResponse;
+
+/*
+ * LoanService.listLoans completo (consulta con JOIN y armado de los LoanDTO)
+ * sobre una base H2 en memoria con la aplicación real levantada. El servidor web
+ * se levanta en un puerto libre: SecurityConfig necesita HttpSecurity, que solo
+ * existe en una aplicación web. El benchmark llama al servicio directamente.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoanListingBenchmark {
+
+    private static final int BATCH = 1_000;
+    private static final int USERS = 1_000;
+
+    @Param({ "1000", "100000" })
+    public int loans;
+
+    private ConfigurableApplicationContext context;
+    private LoanService loanService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(LibraryProjectApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:loan-benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.show-sql=false",
+                        "library.search.rebuild-on-startup=false")
+                .run();
+        loanService = context.getBean(LoanService.class);
+        seed(context.getBean(UserRepository.class), context.getBean(BookRepository.class),
+                context.getBean(LoanRepository.class), context.getBean(TransactionTemplate.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<ApiResponse<List<LoanDTO>>> listLoans() {
+        return loanService.listLoans();
+    }
+
+    // Un libro por préstamo y usuarios repetidos, insertados en lotes
+    private void seed(UserRepository userRepository, BookRepository bookRepository, LoanRepository loanRepository,
+            TransactionTemplate transactionTemplate) {
+        List<User> users = new ArrayList<>(USERS);
+        for (long id = 1; id <= USERS; id++) {
+            User user = new User();
+            user.setId(id);
+            user.setName("Usuario " + id);
+            user.setEmail("usuario" + id + "@example.com");
+            user.setPhone("3001234567");
+            user.setAddress("Calle " + id);
+            users.add(user);
+        }
+        userRepository.saveAll(users);
+
+        LocalDate loanDate = LocalDate.parse("2025-02-25");
+        for (int offset = 0; offset < loans; offset += BATCH) {
+            int start = offset;
+            int end = Math.min(start + BATCH, loans);
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Book> books = new ArrayList<>(end - start);
+                for (int i = start; i < end; i++) {
+                    Book book = new Book();
+                    book.setTitle("Libro " + i);
+                    book.setAuthor("Autor");
+                    book.setGenre("Novela");
+                    book.setAvailability(false);
+                    books.add(book);
+                }
+                bookRepository.insertAll(books);
+
+                List<Loan> batch = new ArrayList<>(books.size());
+                for (int i = 0; i < books.size(); i++) {
+                    Loan loan = new Loan();
+                    loan.setBookId(books.get(i).getId());
+                    loan.setUserId((long) (start + i) % USERS + 1);
+                    loan.setLoanDate(loanDate);
+                    loan.setReturnDate(loanDate.plusDays(15));
+                    batch.add(loan);
+                }
+                loanRepository.insertAll(batch);
+            });
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.libraryproject.library_project.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryproject.library_project.config.JacksonConfig;
+import com.libraryproject.library_project.dto.LoanDTO;
+import com.libraryproject.library_project.utils.ApiResponse;
+
+/*
+ * Tiempo de CPU para escribir la respuesta de listLoans en cada formato que
+ * puede negociar el cliente. El tamaño en bytes de cada formato se imprime al
+ * preparar el benchmark, para comparar lo que se ahorra en la red con lo que
+ * cuesta producirlo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadFormatBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int size;
+
+    @Param({ "json", "json-gzip", "smile", "smile-gzip" })
+    public String format;
+
+    private ObjectMapper objectMapper;
+    private boolean gzip;
+    private ApiResponse<List<LoanDTO>> response;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if (format.startsWith("smile")) {
+            builder.factory(JacksonConfig.smileFactory());
+        }
+        objectMapper = builder.build();
+        gzip = format.endsWith("gzip");
+        response = new ApiResponse<>("Los préstamos fueron consultados con éxito.", LoanFixtures.loans(size));
+
+        System.out.printf("%n%s con %d préstamos: %d bytes%n", format, size, write().length);
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        if (!gzip) {
+            return objectMapper.writeValueAsBytes(response);
+        }
+        // Mismo nivel de compresión que usa Tomcat
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(out, response);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,34 @@
+package com.libraryproject.library_project.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.libraryproject.library_project.utils.TextFormatter;
+
+// Formato de título, autor y género que aplican addBook y la importación
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextFormatterBenchmark {
+
+    @Param({ "rayuela", "CIEN AÑOS DE SOLEDAD Y OTROS CUENTOS DE MACONDO" })
+    public String text;
+
+    @Benchmark
+    public String capitalize() {
+        return TextFormatter.capitalize(text);
+    }
+}
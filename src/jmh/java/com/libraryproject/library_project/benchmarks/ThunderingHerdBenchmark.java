@@ -0,0 +1,100 @@
+package com.libraryproject.library_project.benchmarks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryproject.library_project.cache.CatalogVersion;
+import com.libraryproject.library_project.coalescing.CoalescedReads;
+import com.libraryproject.library_project.dto.BookSummaryDTO;
+import com.libraryproject.library_project.utils.ApiResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/*
+ * Muchos clientes pidiendo listAllBooks a la vez (la apertura de la
+ * biblioteca). La consulta se simula con una espera de queryMillis y cada
+ * petición termina con el JSON listo para enviar. "direct" consulta y escribe
+ * el JSON en cada petición; "coalesced" pasa por CoalescedReads.
+ *
+ * El contador "queries" da las consultas por segundo que llegan a la base y
+ * "requests" las peticiones atendidas por segundo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(1)
+public class ThunderingHerdBenchmark {
+
+    @Param({ "direct", "coalesced" })
+    public String mode;
+
+    @Param({ "1000" })
+    public int books;
+
+    @Param({ "5" })
+    public int queryMillis;
+
+    private ObjectMapper objectMapper;
+    private CoalescedReads coalescedReads;
+    private List<BookSummaryDTO> catalog;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long queries;
+        public long requests;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        coalescedReads = new CoalescedReads(new CatalogVersion(Duration.ofSeconds(5)), objectMapper,
+                new SimpleMeterRegistry());
+        catalog = new ArrayList<>(books);
+        for (long id = 1; id <= books; id++) {
+            catalog.add(new BookSummaryDTO(id, "Libro " + id, "Autor", "Novela", true));
+        }
+    }
+
+    @Benchmark
+    public byte[] listAllBooks(Counters counters) throws Exception {
+        counters.requests++;
+        if (mode.equals("coalesced")) {
+            return coalescedReads.share("listAllBooks", () -> query(counters)).json();
+        }
+        return objectMapper.writeValueAsBytes(query(counters).getBody());
+    }
+
+    private ResponseEntity<ApiResponse<List<BookSummaryDTO>>> query(Counters counters) {
+        counters.queries++;
+        try {
+            Thread.sleep(queryMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return ResponseEntity.ok(new ApiResponse<>("Los libros fueron consultados con éxito.", catalog));
+    }
+}
@@ -0,0 +1,138 @@
+package com.libraryproject.library_project.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.entities.User;
+import com.libraryproject.library_project.repositories.BookRepository;
+import com.libraryproject.library_project.repositories.UserRepository;
+
+/*
+ * Caché de lectura para libros y usuarios buscados por id. Guarda copias de las
+ * entidades (nunca la instancia que maneja Hibernate) y entrega copias, así que
+ * modificar un resultado no altera lo cacheado. Toda escritura pasa por aquí y
+ * borra la entrada; si hay una transacción abierta se vuelve a borrar al
+ * terminarla, para descartar lo que otra petición haya leído antes del commit.
+ */
+@Component
+public class CatalogCache {
+
+    private final BookRepository bookRepository;
+    private final UserRepository userRepository;
+    private final Cache<Long, Book> books;
+    private final Cache<Long, User> users;
+
+    @Autowired
+    public CatalogCache(BookRepository bookRepository, UserRepository userRepository,
+            @Value("${library.cache.maximum-size:10000}") long maximumSize,
+            @Value("${library.cache.ttl:10m}") Duration ttl) {
+        this(bookRepository, userRepository, maximumSize, ttl, Ticker.systemTicker(), ForkJoinPool.commonPool());
+    }
+
+    CatalogCache(BookRepository bookRepository, UserRepository userRepository, long maximumSize, Duration ttl,
+            Ticker ticker, Executor executor) {
+        this.bookRepository = bookRepository;
+        this.userRepository = userRepository;
+        this.books = newCache(maximumSize, ttl, ticker, executor);
+        this.users = newCache(maximumSize, ttl, ticker, executor);
+    }
+
+    public Optional<Book> findBook(Long bookId) {
+        Book cached = books.get(bookId, id -> bookRepository.findById(id).map(Book::copy).orElse(null));
+        return Optional.ofNullable(cached).map(Book::copy);
+    }
+
+    public Book saveBook(Book book) {
+        Book saved = bookRepository.save(book);
+        evictBook(saved.getId());
+        return saved;
+    }
+
+    public void deleteBook(Long bookId) {
+        bookRepository.deleteById(bookId);
+        evictBook(bookId);
+    }
+
+    public void evictBook(Long bookId) {
+        evict(books, bookId);
+    }
+
+    public Optional<User> findUser(Long userId) {
+        User cached = users.get(userId, id -> userRepository.findById(id).map(User::copy).orElse(null));
+        return Optional.ofNullable(cached).map(User::copy);
+    }
+
+    public User saveUser(User user) {
+        User saved = userRepository.save(user);
+        evict(users, saved.getId());
+        return saved;
+    }
+
+    // Estadísticas de aciertos, fallos y expulsiones por caché
+    public Map<String, Map<String, Object>> stats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        stats.put("books", describe(books));
+        stats.put("users", describe(users));
+        return stats;
+    }
+
+    Cache<Long, Book> bookCache() {
+        return books;
+    }
+
+    Cache<Long, User> userCache() {
+        return users;
+    }
+
+    private static <V> Cache<Long, V> newCache(long maximumSize, Duration ttl, Ticker ticker, Executor executor) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .executor(executor)
+                .recordStats()
+                .build();
+    }
+
+    private static <V> void evict(Cache<Long, V> cache, Long id) {
+        if (id == null) {
+            return;
+        }
+        cache.invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(id);
+                }
+            });
+        }
+    }
+
+    private static Map<String, Object> describe(Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("size", cache.estimatedSize());
+        description.put("hitCount", stats.hitCount());
+        description.put("missCount", stats.missCount());
+        description.put("hitRate", stats.hitRate());
+        description.put("evictionCount", stats.evictionCount());
+        description.put("averageLoadPenaltyMs", stats.averageLoadPenalty() / 1_000_000.0);
+        return description;
+    }
+}
@@ -0,0 +1,286 @@
+package com.libraryproject.library_project.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryproject.library_project.coalescing.SharedResponse;
+import com.libraryproject.library_project.dto.BookSummaryDTO;
+import com.libraryproject.library_project.events.BookChangedEvent;
+import com.libraryproject.library_project.repositories.BookRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Respuesta de listAllBooks ya escrita en JSON, y también comprimida con gzip,
+ * en buffers directos (fuera del heap) que se envían tal cual a cada petición:
+ * leer el catálogo no pasa por Jackson ni por la base.
+ *
+ * El JSON de cada libro se guarda por separado. Cada cambio confirmado solo
+ * marca el libro como pendiente, sin tomar el bloqueo ni consultar la base, así
+ * que no demora el commit de los préstamos y devoluciones. En la primera lectura
+ * después de un cambio los libros pendientes se releen juntos de la base
+ * principal, se vuelven a escribir solo esos y se arma de nuevo la respuesta
+ * completa (uniendo los libros y comprimiendo). Como se relee el estado
+ * confirmado, dos cambios del mismo libro que se confirman casi a la vez no
+ * pueden dejar el valor anterior.
+ *
+ * Este listener corre antes que el de CatalogVersion: cuando el ETag cambia, la
+ * versión del catálogo preparado ya cambió y la siguiente lectura incluye el
+ * cambio.
+ *
+ * El "timestamp" de la respuesta es el momento en que se armó el catálogo, no el
+ * de cada petición: todas las lecturas entre dos cambios reciben los mismos bytes.
+ */
+@Component
+public class CatalogSnapshot {
+
+    public static final String REBUILDS_COUNTER = "library.catalog.snapshot.rebuilds";
+    private static final String MESSAGE = "Los libros fueron consultados con éxito.";
+    // Ids por consulta al releer los libros pendientes (por ejemplo después de una importación)
+    private static final int REFRESH_CHUNK = 1000;
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshot.class);
+
+    private final BookRepository bookRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Counter rebuilds;
+    private final boolean enabled;
+
+    private final Object lock = new Object();
+    // JSON de cada libro por id; solo se usa con lock tomado
+    private final NavigableMap<Long, byte[]> books = new TreeMap<>();
+    private boolean loaded;
+    // Libros cambiados desde la última vez que se armó; se releen al armar
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    public record Snapshot(long version, ByteBuffer json, ByteBuffer gzip) {
+    }
+
+    public CatalogSnapshot(BookRepository bookRepository, PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper, MeterRegistry registry,
+            @Value("${library.catalog.snapshot.enabled:true}") boolean enabled) {
+        this.bookRepository = bookRepository;
+        // Escritura y no solo lectura: con réplica, la lectura va a la base principal
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.objectMapper = objectMapper;
+        this.rebuilds = Counter.builder(REBUILDS_COUNTER)
+                .description("Veces que se armó de nuevo el catálogo preparado")
+                .register(registry);
+        this.enabled = enabled;
+    }
+
+    // JSON sin ?fields= sale del catálogo preparado; lo demás (Smile, fields) de fallback
+    public ResponseEntity<?> respond(String fields, String accept, String acceptEncoding,
+            Supplier<ResponseEntity<?>> fallback) {
+        if (!enabled || (fields != null && !fields.isBlank()) || !SharedResponse.acceptsJson(accept)) {
+            return fallback.get();
+        }
+        Snapshot current;
+        try {
+            current = current();
+        } catch (RuntimeException e) {
+            logger.error("No se pudo preparar el catálogo; se consulta como siempre", e);
+            return fallback.get();
+        }
+        boolean gzip = acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(gzip ? current.gzip() : current.json());
+    }
+
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null && current.version() == version.get()) {
+            return current;
+        }
+        synchronized (lock) {
+            if (!loaded) {
+                load();
+            }
+            // La versión se lee antes de releer los pendientes: un cambio que llega
+            // mientras tanto deja una versión mayor y se arma otra vez
+            long target = version.get();
+            if (snapshot == null || snapshot.version() != target) {
+                refreshPending();
+                snapshot = build(target);
+                rebuilds.increment();
+            }
+            return snapshot;
+        }
+    }
+
+    // Para cambios hechos en la base fuera de los servicios: la siguiente lectura carga todo
+    public void invalidate() {
+        synchronized (lock) {
+            books.clear();
+            loaded = false;
+            version.incrementAndGet();
+        }
+    }
+
+    // Altas, cambios y bajas por igual: al releer, un libro que ya no está se quita
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        pending.add(event.bookId());
+        version.incrementAndGet();
+    }
+
+    private void load() {
+        books.clear();
+        // Antes de leer: los cambios confirmados hasta aquí ya salen en la carga
+        pending.clear();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<BookSummaryDTO> summaries = bookRepository.streamAllSummaries()) {
+                summaries.forEach(this::put);
+            }
+        });
+        loaded = true;
+        version.incrementAndGet();
+    }
+
+    private void refreshPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // Se quitan antes de consultar: si un libro vuelve a cambiar durante la
+        // consulta queda pendiente para la siguiente vez
+        List<Long> ids = new ArrayList<>(pending);
+        pending.removeAll(ids);
+        try {
+            for (int from = 0; from < ids.size(); from += REFRESH_CHUNK) {
+                List<Long> chunk = ids.subList(from, Math.min(from + REFRESH_CHUNK, ids.size()));
+                Set<Long> missing = new HashSet<>(chunk);
+                for (BookSummaryDTO book : transactionTemplate
+                        .execute(status -> bookRepository.findSummariesByIdIn(chunk))) {
+                    put(book);
+                    missing.remove(book.getId());
+                }
+                missing.forEach(books::remove);
+            }
+        } catch (RuntimeException e) {
+            // Quedan pendientes y se vuelven a leer en el siguiente intento
+            pending.addAll(ids);
+            throw e;
+        }
+    }
+
+    private void put(BookSummaryDTO book) {
+        try {
+            books.put(book.getId(), objectMapper.writeValueAsBytes(book));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Mismo formato que ApiResponse: {"message":...,"data":[...],"timestamp":...}
+    private Snapshot build(long target) {
+        try {
+            byte[] prefix = concat("{\"message\":", objectMapper.writeValueAsBytes(MESSAGE), ",\"data\":[");
+            byte[] suffix = concat("],\"timestamp\":", objectMapper.writeValueAsBytes(LocalDateTime.now()), "}");
+            int size = prefix.length + suffix.length + Math.max(books.size() - 1, 0);
+            for (byte[] book : books.values()) {
+                size += book.length;
+            }
+
+            ByteBuffer json = ByteBuffer.allocateDirect(size);
+            json.put(prefix);
+            boolean first = true;
+            for (byte[] book : books.values()) {
+                if (!first) {
+                    json.put((byte) ',');
+                }
+                json.put(book);
+                first = false;
+            }
+            json.put(suffix);
+            json.flip();
+
+            return new Snapshot(target, json.asReadOnlyBuffer(), gzip(json.duplicate(), size));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ByteBuffer gzip(ByteBuffer json, int size) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(size / 4, 64));
+        byte[] chunk = new byte[8192];
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed, chunk.length)) {
+            while (json.hasRemaining()) {
+                int length = Math.min(chunk.length, json.remaining());
+                json.get(chunk, 0, length);
+                out.write(chunk, 0, length);
+            }
+        }
+        ByteBuffer gzip = ByteBuffer.allocateDirect(compressed.size());
+        gzip.put(compressed.toByteArray());
+        gzip.flip();
+        return gzip.asReadOnlyBuffer();
+    }
+
+    private static byte[] concat(String start, byte[] value, String end) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(start.getBytes(StandardCharsets.UTF_8));
+        out.writeBytes(value);
+        out.writeBytes(end.getBytes(StandardCharsets.UTF_8));
+        return out.toByteArray();
+    }
+
+    // gzip o * en Accept-Encoding, salvo con q=0
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,79 @@
+package com.libraryproject.library_project.cache;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.WebRequest;
+
+import com.libraryproject.library_project.events.BookChangedEvent;
+
+/*
+ * Versión del catálogo para las peticiones condicionales (ETag y
+ * Last-Modified). Cualquier cambio de un libro, incluida su disponibilidad,
+ * aumenta la versión al confirmarse la transacción. Si el cliente ya tiene la
+ * versión actual se responde 304 sin consultar la base ni serializar nada.
+ *
+ * Las lecturas que responden con este ETag van a la base principal y no a la
+ * réplica: una réplica atrasada devolvería datos anteriores a la versión.
+ *
+ * La versión vive en memoria y el ETag lleva el momento de arranque, así que
+ * después de un reinicio (o entre dos instancias) los clientes descargan el
+ * catálogo una vez más.
+ */
+@Component
+public class CatalogVersion {
+
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+    private volatile long lastModified = System.currentTimeMillis();
+    private final CacheControl cacheControl;
+
+    public CatalogVersion(@Value("${library.catalog.max-age:5s}") Duration maxAge) {
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePublic();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        bump();
+    }
+
+    public void bump() {
+        lastModified = System.currentTimeMillis();
+        version.incrementAndGet();
+    }
+
+    // ETag débil: el mismo contenido vale comprimido o sin comprimir, y Tomcat no
+    // comprime las respuestas con ETag fuerte
+    public String etag() {
+        return "W/\"" + instance + "-" + version.get() + "\"";
+    }
+
+    public long lastModified() {
+        return lastModified;
+    }
+
+    // Devuelve null (304) si el cliente tiene la versión actual; si no, arma la
+    // respuesta con sus cabeceras de caché. La versión se lee antes de consultar,
+    // así el contenido nunca es más viejo que el ETag que lo acompaña.
+    public <T> ResponseEntity<T> conditional(WebRequest request, Supplier<ResponseEntity<T>> response) {
+        String etag = etag();
+        long modified = lastModified;
+        if (request.checkNotModified(etag, modified)) {
+            return null;
+        }
+
+        ResponseEntity<T> result = response.get();
+        if (!result.getStatusCode().is2xxSuccessful()) {
+            return ResponseEntity.status(result.getStatusCode()).headers(result.getHeaders())
+                    .cacheControl(CacheControl.noStore()).body(result.getBody());
+        }
+        return ResponseEntity.status(result.getStatusCode()).headers(result.getHeaders()).cacheControl(cacheControl)
+                .eTag(etag).lastModified(modified).body(result.getBody());
+    }
+}
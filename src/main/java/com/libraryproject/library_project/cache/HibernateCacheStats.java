@@ -0,0 +1,48 @@
+package com.libraryproject.library_project.cache;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// Aciertos, fallos y escrituras por región de la caché de segundo nivel de Hibernate
+@Component
+public class HibernateCacheStats {
+
+    private final Statistics statistics;
+
+    public HibernateCacheStats(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public Map<String, Map<String, Object>> regions() {
+        Map<String, Map<String, Object>> regions = new LinkedHashMap<>();
+        String[] names = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(names);
+        for (String name : names) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(name);
+            if (region != null) {
+                regions.put(name, describe(region.getHitCount(), region.getMissCount(), region.getPutCount()));
+            }
+        }
+        // Totales de la caché de consultas, sumando todas sus regiones
+        regions.put("queries", describe(statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount(),
+                statistics.getQueryCachePutCount()));
+        return regions;
+    }
+
+    private static Map<String, Object> describe(long hits, long misses, long puts) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("hitCount", hits);
+        description.put("missCount", misses);
+        description.put("putCount", puts);
+        description.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        return description;
+    }
+}
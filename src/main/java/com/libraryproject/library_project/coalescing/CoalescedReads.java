@@ -0,0 +1,70 @@
+package com.libraryproject.library_project.coalescing;
+
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryproject.library_project.cache.CatalogVersion;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Une las lecturas simultáneas de un listado completo (listAllBooks,
+ * listLoans): mientras una consulta está en curso, las peticiones iguales que
+ * llegan esperan su resultado en lugar de consultar otra vez, y todas envían
+ * el mismo JSON, escrito una sola vez.
+ *
+ * La clave incluye la versión del catálogo, que cambia con cada libro,
+ * préstamo o devolución confirmados. Una petición que llega después de un
+ * cambio no se une a una consulta empezada antes, así que nunca recibe datos
+ * más viejos de los que habría leído por su cuenta.
+ */
+@Component
+public class CoalescedReads {
+
+    public static final String REQUESTS_COUNTER = "library.coalesced.requests";
+
+    private static final Logger logger = LoggerFactory.getLogger(CoalescedReads.class);
+
+    private final CatalogVersion catalogVersion;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry registry;
+    private final SingleFlight<String, SharedResponse> flights = new SingleFlight<>();
+
+    public CoalescedReads(CatalogVersion catalogVersion, ObjectMapper objectMapper, MeterRegistry registry) {
+        this.catalogVersion = catalogVersion;
+        this.objectMapper = objectMapper;
+        this.registry = registry;
+    }
+
+    public ResponseEntity<?> execute(String listing, String fields, String accept,
+            Supplier<ResponseEntity<?>> loader) {
+        return share(listing, loader).select(fields, accept);
+    }
+
+    public SharedResponse share(String listing, Supplier<ResponseEntity<?>> loader) {
+        boolean[] shared = { false };
+        SharedResponse response = flights.execute(listing + ":" + catalogVersion.etag(),
+                () -> serialize(listing, loader.get()), () -> shared[0] = true);
+        registry.counter(REQUESTS_COUNTER, "listing", listing, "shared", Boolean.toString(shared[0])).increment();
+        return response;
+    }
+
+    private SharedResponse serialize(String listing, ResponseEntity<?> response) {
+        if (!SharedResponse.preSerializable(response)) {
+            return new SharedResponse(response, null);
+        }
+        try {
+            return new SharedResponse(response, objectMapper.writeValueAsBytes(response.getBody()));
+        } catch (JsonProcessingException e) {
+            // Sin el JSON compartido cada petición escribe la respuesta como siempre
+            logger.warn("No se pudo escribir de antemano el listado {}", listing, e);
+            return new SharedResponse(response, null);
+        }
+    }
+}
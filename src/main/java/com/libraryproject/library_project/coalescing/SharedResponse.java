@@ -0,0 +1,48 @@
+package com.libraryproject.library_project.coalescing;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import com.libraryproject.library_project.config.JacksonConfig;
+import com.libraryproject.library_project.utils.SparseFields;
+
+/*
+ * Respuesta de un listado compartida por todas las peticiones de un mismo
+ * vuelo. Si fue exitosa trae también el JSON ya escrito, que se envía tal cual
+ * a quien pida JSON sin ?fields=; el resto usa la respuesta y la escribe Spring.
+ */
+public record SharedResponse(ResponseEntity<?> response, byte[] json) {
+
+    public ResponseEntity<?> select(String fields, String accept) {
+        if (fields != null && !fields.isBlank()) {
+            return SparseFields.select(response, fields);
+        }
+        if (json == null || !acceptsJson(accept)) {
+            return response;
+        }
+        return ResponseEntity.status(response.getStatusCode()).headers(response.getHeaders())
+                .contentType(MediaType.APPLICATION_JSON).body(json);
+    }
+
+    static boolean preSerializable(ResponseEntity<?> response) {
+        return response.getStatusCode().isSameCodeAs(HttpStatus.OK) && response.getBody() != null;
+    }
+
+    // Smile u otro formato explícito quedan a cargo de la negociación de Spring
+    public static boolean acceptsJson(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return true;
+        }
+        try {
+            List<MediaType> types = MediaType.parseMediaTypes(accept);
+            return types.stream().noneMatch(JacksonConfig.SMILE::equalsTypeAndSubtype)
+                    && types.stream().anyMatch(type -> type.includes(MediaType.APPLICATION_JSON));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.libraryproject.library_project.coalescing;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/*
+ * Ejecuta una sola vez las llamadas simultáneas con la misma clave: la primera
+ * carga el valor y las que llegan mientras tanto esperan y reciben ese mismo
+ * valor. Al terminar la clave se libera, así que no guarda nada: la siguiente
+ * llamada vuelve a cargar.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+
+    public V execute(K key, Supplier<V> loader) {
+        return execute(key, loader, null);
+    }
+
+    // onShared se llama cuando el resultado viene de la carga de otra llamada
+    public V execute(K key, Supplier<V> loader, Runnable onShared) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> running = flights.putIfAbsent(key, flight);
+        if (running != null) {
+            if (onShared != null) {
+                onShared.run();
+            }
+            return join(running);
+        }
+        try {
+            V value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    private static <V> V join(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            // La misma excepción que recibió la llamada que hizo la carga
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
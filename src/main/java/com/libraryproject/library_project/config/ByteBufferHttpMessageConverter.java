@@ -0,0 +1,58 @@
+package com.libraryproject.library_project.config;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+/*
+ * Escribe respuestas cuyo cuerpo es un ByteBuffer (el catálogo preparado de
+ * CatalogSnapshot, fuera del heap) pasándolo al stream de la respuesta por
+ * tramos, sin copiarlo entero a un byte[] ni volver a serializarlo. El tipo de
+ * contenido lo fija quien arma la respuesta. Spring Boot lo agrega antes que
+ * los convertidores de Jackson.
+ */
+@Component
+public class ByteBufferHttpMessageConverter extends AbstractHttpMessageConverter<ByteBuffer> {
+
+    public ByteBufferHttpMessageConverter() {
+        super(MediaType.ALL);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ByteBuffer.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected ByteBuffer readInternal(Class<? extends ByteBuffer> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("No se leen cuerpos como ByteBuffer.", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(ByteBuffer buffer, MediaType contentType) {
+        return (long) buffer.remaining();
+    }
+
+    @Override
+    protected void writeInternal(ByteBuffer buffer, HttpOutputMessage outputMessage) throws IOException {
+        // Una vista propia: el mismo buffer se envía a la vez a muchas peticiones
+        ByteBuffer view = buffer.duplicate();
+        WritableByteChannel channel = Channels.newChannel(outputMessage.getBody());
+        while (view.hasRemaining()) {
+            channel.write(view);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.libraryproject.library_project.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.boot.web.servlet.server.ConfigurableServletWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+/*
+ * Comprime con gzip las respuestas a partir de library.http.compression-min-size
+ * (2 KB por defecto): las respuestas pequeñas no ganan lo que cuesta
+ * comprimirlas. Si se configuró server.compression se usa esa configuración.
+ * Tomcat no ofrece brotli; para eso hay que comprimir en el proxy inverso.
+ * Sin servidor web (por ejemplo en pruebas sin entorno web) no se registra.
+ */
+@Configuration
+public class CompressionConfig {
+
+    static final String[] MIME_TYPES = { "application/json", "application/x-ndjson", "application/x-jackson-smile",
+            "text/csv", "text/plain", "text/html", "text/css", "application/javascript" };
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnProperty(name = "library.http.compression", havingValue = "true", matchIfMissing = true)
+    public WebServerFactoryCustomizer<ConfigurableServletWebServerFactory> compressionCustomizer(
+            ServerProperties serverProperties,
+            @Value("${library.http.compression-min-size:2KB}") DataSize minResponseSize) {
+        return factory -> {
+            if (serverProperties.getCompression().getEnabled()) {
+                return;
+            }
+            Compression compression = new Compression();
+            compression.setEnabled(true);
+            compression.setMinResponseSize(minResponseSize);
+            compression.setMimeTypes(MIME_TYPES);
+            factory.setCompression(compression);
+        };
+    }
+}
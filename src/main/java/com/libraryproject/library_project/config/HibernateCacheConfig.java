@@ -0,0 +1,68 @@
+package com.libraryproject.library_project.config;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+
+import javax.cache.CacheManager;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+/*
+ * Caché de segundo nivel de Hibernate sobre JCache (Caffeine) para Book y User,
+ * más la caché de consultas para los listados del catálogo. Cada contexto crea
+ * su propio CacheManager, así dos aplicaciones en la misma JVM (por ejemplo las
+ * pruebas con bases distintas) no comparten datos.
+ *
+ * Las regiones de entidades y de consultas tienen tamaño y tiempo de vida
+ * limitados. La región de marcas de tiempo no expira: es la que indica qué
+ * consultas guardadas quedaron viejas después de un cambio en su tabla.
+ */
+@Configuration
+@ConditionalOnProperty(name = "library.l2-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class HibernateCacheConfig {
+
+    public static final String BOOKS_REGION = "books";
+    public static final String USERS_REGION = "users";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(@Value("${library.l2-cache.maximum-size:10000}") long maximumSize,
+            @Value("${library.l2-cache.ttl:10m}") Duration ttl) {
+        CacheManager cacheManager = new CaffeineCachingProvider().getCacheManager();
+        CaffeineConfiguration<Object, Object> bounded = new CaffeineConfiguration<>();
+        bounded.setMaximumSize(OptionalLong.of(maximumSize));
+        bounded.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        bounded.setStatisticsEnabled(true);
+        for (String region : new String[] { BOOKS_REGION, USERS_REGION,
+                RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME }) {
+            cacheManager.createCache(region, bounded);
+        }
+
+        CaffeineConfiguration<Object, Object> timestamps = new CaffeineConfiguration<>();
+        timestamps.setStatisticsEnabled(true);
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, timestamps);
+        return cacheManager;
+    }
+
+    // Los valores de spring.jpa.properties tienen prioridad
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.putIfAbsent(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.putIfAbsent(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.putIfAbsent(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.putIfAbsent(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.putIfAbsent(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            properties.putIfAbsent(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+}
@@ -0,0 +1,62 @@
+package com.libraryproject.library_project.config;
+
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.NopAnnotationIntrospector;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.libraryproject.library_project.utils.SparseFields;
+import com.libraryproject.library_project.utils.SparseFieldset;
+
+/*
+ * Conecta @SparseFieldset con los filtros de Jackson solo en el ObjectMapper de
+ * la aplicación: los DTO marcados usan el filtro SparseFields.FILTER_ID, que por
+ * defecto escribe todos los campos. Un ObjectMapper creado a mano no ve el
+ * filtro y sigue escribiendo los DTO completos.
+ *
+ * Además agrega Smile, un JSON binario, para los clientes que lo pidan con
+ * Accept: application/x-jackson-smile.
+ */
+@Configuration
+public class JacksonConfig {
+
+    public static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer sparseFieldsetCustomizer() {
+        return builder -> builder
+                .filters(SparseFields.ALL_FIELDS)
+                // Se combina con el introspector ya configurado: el constructor no
+                // lo tiene hasta crear el ObjectMapper
+                .postConfigurer(mapper -> mapper.setAnnotationIntrospector(AnnotationIntrospector.pair(
+                        new SparseFieldsetIntrospector(),
+                        mapper.getSerializationConfig().getAnnotationIntrospector())));
+    }
+
+    // Usa el mismo constructor de ObjectMapper que JSON (fechas, módulos, filtros)
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(smileFactory()).build());
+    }
+
+    // Los textos repetidos (nombre, correo, dirección del usuario en cada préstamo)
+    // se escriben una vez y luego como referencia
+    public static SmileFactory smileFactory() {
+        return SmileFactory.builder().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build();
+    }
+
+    static class SparseFieldsetIntrospector extends NopAnnotationIntrospector {
+
+        @Override
+        public Object findFilterId(Annotated annotated) {
+            return annotated.hasAnnotation(SparseFieldset.class) ? SparseFields.FILTER_ID : null;
+        }
+    }
+}
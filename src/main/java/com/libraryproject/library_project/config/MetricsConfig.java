@@ -0,0 +1,44 @@
+package com.libraryproject.library_project.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+
+/*
+ * Tiempos de cada método de los servicios (@Timed en BookService y LoanService)
+ * y de cada llamada a los repositorios (spring.data.repository.invocations, que
+ * Spring Boot registra solo). Ambos se publican con histograma para poder
+ * calcular percentiles en Prometheus.
+ */
+@Configuration
+public class MetricsConfig {
+
+    public static final String SERVICE_TIMER = "library.service";
+    private static final String REPOSITORY_TIMER = "spring.data.repository.invocations";
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    @Bean
+    public MeterFilter latencyHistograms() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (id.getName().equals(SERVICE_TIMER) || id.getName().equals(REPOSITORY_TIMER)) {
+                    return DistributionStatisticConfig.builder()
+                            .percentilesHistogram(true)
+                            .build()
+                            .merge(config);
+                }
+                return config;
+            }
+        };
+    }
+}
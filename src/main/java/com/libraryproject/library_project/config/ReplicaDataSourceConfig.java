@@ -0,0 +1,101 @@
+package com.libraryproject.library_project.config;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+
+import com.libraryproject.library_project.datasource.ReadOnlyCacheJpaDialect;
+import com.libraryproject.library_project.datasource.ReplicaDataSource;
+import com.libraryproject.library_project.datasource.ReplicaLagMonitor;
+import com.libraryproject.library_project.datasource.ReplicaPools;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Con library.replica.url, las transacciones de solo lectura (listados,
+ * búsquedas, consultas de préstamos) usan la réplica y el resto la base
+ * principal. LazyConnectionDataSourceProxy no pide la conexión real hasta la
+ * primera sentencia, cuando ya sabe si la transacción es de solo lectura.
+ *
+ * Si la réplica se atrasa más de library.replica.max-lag, o no responde, las
+ * lecturas vuelven a la base principal hasta que se recupere.
+ */
+@Configuration
+@ConditionalOnProperty(name = "library.replica.url")
+public class ReplicaDataSourceConfig {
+
+    public static final String LAG_GAUGE = "library.replica.lag";
+    public static final String USABLE_GAUGE = "library.replica.usable";
+
+    @Bean(destroyMethod = "close")
+    public ReplicaPools replicaPools(DataSourceProperties properties, Environment environment,
+            @Value("${library.replica.url}") String replicaUrl,
+            @Value("${library.replica.username:}") String replicaUsername,
+            @Value("${library.replica.password:}") String replicaPassword) {
+        Binder binder = Binder.get(environment);
+
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+
+        HikariDataSource replica = new HikariDataSource();
+        replica.setJdbcUrl(replicaUrl);
+        replica.setUsername(replicaUsername.isEmpty() ? properties.determineUsername() : replicaUsername);
+        replica.setPassword(replicaPassword.isEmpty() ? properties.determinePassword() : replicaPassword);
+        binder.bind("library.replica.hikari", Bindable.ofInstance(replica));
+        replica.setPoolName("replica");
+        return new ReplicaPools(primary, replica);
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(ReplicaPools pools, MeterRegistry registry,
+            @Value("${library.replica.lag-query:SHOW REPLICA STATUS}") String lagQuery,
+            @Value("${library.replica.lag-column:Seconds_Behind_Source}") String lagColumn,
+            @Value("${library.replica.max-lag:5s}") Duration maxLag) {
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(pools.replica(), lagQuery, lagColumn, maxLag);
+        Gauge.builder(LAG_GAUGE, monitor, ReplicaLagMonitor::lagSeconds)
+                .description("Retraso de la réplica en segundos (-1 si no se pudo medir)")
+                .baseUnit("seconds")
+                .register(registry);
+        Gauge.builder(USABLE_GAUGE, monitor, m -> m.isUsable() ? 1 : 0)
+                .description("1 si las lecturas van a la réplica, 0 si van a la base principal")
+                .register(registry);
+        return monitor;
+    }
+
+    @Bean
+    public DataSource dataSource(ReplicaPools pools, ReplicaLagMonitor replicaLagMonitor) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(pools.primary());
+        dataSource.setReadOnlyDataSource(new ReplicaDataSource(pools.replica(), pools.primary(), replicaLagMonitor));
+        return dataSource;
+    }
+
+    // Las lecturas de la réplica no usan la caché de segundo nivel ni la de consultas
+    @Bean
+    public static BeanPostProcessor readOnlyCacheDialectPostProcessor(ObjectProvider<ReplicaLagMonitor> monitor) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof LocalContainerEntityManagerFactoryBean factory) {
+                    factory.setJpaDialect(new ReadOnlyCacheJpaDialect(() -> monitor.getObject().isUsable()));
+                }
+                return bean;
+            }
+        };
+    }
+}
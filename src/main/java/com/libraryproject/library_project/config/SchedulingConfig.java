@@ -0,0 +1,10 @@
+package com.libraryproject.library_project.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Habilita las tareas programadas (revisión diaria de préstamos vencidos y latidos del feed de cambios)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
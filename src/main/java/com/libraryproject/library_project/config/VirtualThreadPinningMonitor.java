@@ -0,0 +1,119 @@
+package com.libraryproject.library_project.config;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/*
+ * Con hilos virtuales, un bloque synchronized que espera E/S (en Java 23) deja
+ * fijo al hilo portador y el servidor vuelve a depender de pocos hilos del
+ * sistema. Este monitor escucha el evento jdk.VirtualThreadPinned de JFR y
+ * cuenta los bloqueos por el primer método fuera del JDK (normalmente la
+ * biblioteca que tiene el synchronized), avisando en el log la primera vez que
+ * aparece cada uno.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@ConditionalOnProperty(name = "library.threads.pinning-monitor", havingValue = "true", matchIfMissing = true)
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    // Límite de métodos distintos que se registran, para no crecer sin control
+    private static final int MAX_SOURCES = 100;
+
+    private final Duration threshold;
+    private final Map<String, LongAdder> pinnedBySource = new ConcurrentHashMap<>();
+    private final LongAdder pinnedCount = new LongAdder();
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(@Value("${library.threads.pinning-threshold:20ms}") Duration threshold) {
+        this.threshold = threshold;
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (stream != null) {
+            return;
+        }
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::record);
+        stream.startAsync();
+        logger.info("Monitor de hilos virtuales fijados activo (umbral {} ms)", threshold.toMillis());
+    }
+
+    // Detiene la grabación después de procesar los eventos pendientes
+    @PreDestroy
+    public synchronized void stop() {
+        if (stream != null) {
+            stream.stop();
+            stream.close();
+            stream = null;
+        }
+    }
+
+    public long pinnedCount() {
+        return pinnedCount.sum();
+    }
+
+    // Cantidad de bloqueos por método de origen, de mayor a menor
+    public Map<String, Long> pinnedBySource() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        pinnedBySource.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .forEach(entry -> snapshot.put(entry.getKey(), entry.getValue().sum()));
+        return snapshot;
+    }
+
+    void record(RecordedEvent event) {
+        pinnedCount.increment();
+        String source = source(event);
+        LongAdder count = pinnedBySource.get(source);
+        if (count == null && pinnedBySource.size() < MAX_SOURCES) {
+            count = pinnedBySource.computeIfAbsent(source, key -> {
+                logger.warn("Hilo virtual fijado a su portador durante {} ms en {}", event.getDuration().toMillis(),
+                        key);
+                return new LongAdder();
+            });
+        }
+        if (count != null) {
+            count.increment();
+        }
+    }
+
+    // Primer método de la pila que no pertenece al JDK
+    private static String source(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "desconocido";
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        for (RecordedFrame frame : frames) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return type + "." + frame.getMethod().getName();
+            }
+        }
+        return frames.isEmpty() ? "desconocido"
+                : frames.get(0).getMethod().getType().getName() + "." + frames.get(0).getMethod().getName();
+    }
+}
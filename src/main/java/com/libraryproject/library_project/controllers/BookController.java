@@ -2,15 +2,27 @@ package com.libraryproject.library_project.controllers;
 
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.libraryproject.library_project.cache.CatalogSnapshot;
+import com.libraryproject.library_project.cache.CatalogVersion;
+import com.libraryproject.library_project.coalescing.CoalescedReads;
+import com.libraryproject.library_project.dto.BookSummaryDTO;
 import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.idempotency.IdempotentRequests;
+import com.libraryproject.library_project.importer.BookImportFormat;
 import com.libraryproject.library_project.services.BookService;
+import com.libraryproject.library_project.utils.SparseFields;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 
+import java.io.InputStream;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,6 +30,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Tag(name = "Books", description = "Gestión de libros en la biblioteca")
 @RestController
@@ -26,18 +41,80 @@ import org.springframework.web.bind.annotation.RequestBody;
 public class BookController {
 
     private final BookService bookService;
+    private final CatalogVersion catalogVersion;
+    private final IdempotentRequests idempotentRequests;
+    private final CoalescedReads coalescedReads;
+    private final CatalogSnapshot catalogSnapshot;
 
     @Operation(summary = "Lista todos los libros")
     @GetMapping("/listAllBooks")
-    public ResponseEntity<?> listAllBooks() {
-        ResponseEntity<?> response = bookService.listAllBooks();
+    public ResponseEntity<?> listAllBooks(@RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        return catalogVersion.conditional(request, () -> catalogSnapshot.respond(fields, accept, acceptEncoding,
+                () -> coalescedReads.execute("listAllBooks", fields, accept, bookService::listAllBooks)));
+    }
+
+    @Operation(summary = "Lista los libros por páginas usando un cursor")
+    @GetMapping("/listBooksPage")
+    public ResponseEntity<?> listBooksPage(@RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size, @RequestParam(required = false) String fields,
+            WebRequest request) {
+        return catalogVersion.conditional(request,
+                () -> SparseFields.select(bookService.listBooksPage(cursor, size), fields));
+    }
+
+    @Operation(summary = "Transmite todos los libros en formato NDJSON")
+    @GetMapping(value = "/streamAllBooks", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllBooks(WebRequest request) {
+        StreamingResponseBody body = bookService::writeAllBooks;
+        return catalogVersion.conditional(request,
+                () -> ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body));
+    }
+
+    @Operation(summary = "Buscar libros por título, autor, género y disponibilidad")
+    @GetMapping("/search")
+    public ResponseEntity<?> searchBooks(@RequestParam(required = false) String title,
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) String genre,
+            @RequestParam(required = false) Boolean availability,
+            @RequestParam(defaultValue = "false") boolean contains,
+            @RequestParam(defaultValue = "50") int size, @RequestParam(required = false) String fields,
+            WebRequest request) {
+        return catalogVersion.conditional(request, () -> SparseFields
+                .select(bookService.searchBooks(title, author, genre, availability, contains, size), fields));
+    }
+
+    @Operation(summary = "Búsqueda rápida en memoria con tolerancia a errores de tipeo")
+    @GetMapping("/quickSearch")
+    public ResponseEntity<?> quickSearch(@RequestParam String q, @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String fields) {
+        ResponseEntity<?> response = SparseFields.select(bookService.quickSearch(q, limit), fields);
         return response;
     }
 
     @Operation(summary = "Agregar un nuevo libro")
     @PostMapping("/addBook")
-    public ResponseEntity<?> addBook(@Valid @RequestBody Book newBook) {
-        ResponseEntity<?> response = bookService.addBook(newBook);
+    public ResponseEntity<?> addBook(@Valid @RequestBody Book newBook,
+            @RequestHeader(value = IdempotentRequests.KEY_HEADER, required = false) String idempotencyKey) {
+        // La huella no incluye las fechas de auditoría, que Book toma de la hora actual
+        BookSummaryDTO request = BookSummaryDTO.of(newBook);
+        ResponseEntity<?> response = idempotentRequests.execute(idempotencyKey, "addBook", request,
+                () -> bookService.addBook(newBook));
+        return response;
+    }
+
+    @Operation(summary = "Importar libros desde un archivo CSV o NDJSON")
+    @PostMapping(value = "/importBooks", consumes = { BookImportFormat.CSV_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public ResponseEntity<?> importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept, InputStream body) {
+        // Con Accept: application/x-ndjson se informa el avance mientras se importa
+        if (accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE)) {
+            StreamingResponseBody progress = out -> bookService.writeImportProgress(body, contentType, out);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(progress);
+        }
+        ResponseEntity<?> response = bookService.importBooks(body, contentType);
         return response;
     }
 
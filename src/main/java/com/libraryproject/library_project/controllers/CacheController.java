@@ -0,0 +1,38 @@
+package com.libraryproject.library_project.controllers;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.libraryproject.library_project.cache.CatalogCache;
+import com.libraryproject.library_project.cache.HibernateCacheStats;
+import com.libraryproject.library_project.utils.ApiResponse;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+
+@Tag(name = "Cache", description = "Estadísticas de las cachés de libros y usuarios")
+@RestController
+@RequestMapping("/api/cache")
+@RequiredArgsConstructor
+public class CacheController {
+
+    private final CatalogCache catalogCache;
+    private final HibernateCacheStats hibernateCacheStats;
+
+    @Operation(summary = "Consultar aciertos, fallos y expulsiones de la caché")
+    @GetMapping("/stats")
+    public ResponseEntity<?> stats() {
+        return ResponseEntity.ok(new ApiResponse<>("Estadísticas de la caché.", catalogCache.stats()));
+    }
+
+    @Operation(summary = "Consultar aciertos y fallos por región de la caché de segundo nivel de Hibernate")
+    @GetMapping("/regions")
+    public ResponseEntity<?> regions() {
+        return ResponseEntity.ok(new ApiResponse<>("Estadísticas de la caché de segundo nivel.",
+                hibernateCacheStats.regions()));
+    }
+
+}
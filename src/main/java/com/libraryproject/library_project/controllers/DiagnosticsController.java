@@ -0,0 +1,43 @@
+package com.libraryproject.library_project.controllers;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.libraryproject.library_project.diagnostics.SqlDiagnostics;
+import com.libraryproject.library_project.utils.ApiResponse;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+
+@Tag(name = "Diagnostics", description = "Diagnóstico de consultas SQL por petición")
+@RestController
+@RequestMapping("/api/diagnostics")
+@RequiredArgsConstructor
+public class DiagnosticsController {
+
+    private final SqlDiagnostics sqlDiagnostics;
+
+    @Operation(summary = "Consultar la configuración del diagnóstico de SQL")
+    @GetMapping("/sql")
+    public ResponseEntity<?> sqlSettings() {
+        return ResponseEntity.ok(new ApiResponse<>("Configuración del diagnóstico de SQL.",
+                sqlDiagnostics.settings()));
+    }
+
+    @Operation(summary = "Encender, apagar o ajustar los umbrales del diagnóstico de SQL")
+    @PutMapping("/sql")
+    public ResponseEntity<?> updateSqlSettings(@RequestParam(required = false) Boolean enabled,
+            @RequestParam(required = false) Integer statementThreshold,
+            @RequestParam(required = false) Long timeThresholdMs,
+            @RequestParam(required = false) Integer repeatThreshold) {
+        SqlDiagnostics.Settings settings = sqlDiagnostics.update(enabled, statementThreshold, timeThresholdMs,
+                repeatThreshold);
+        return ResponseEntity.ok(new ApiResponse<>("Diagnóstico de SQL actualizado.", settings));
+    }
+
+}
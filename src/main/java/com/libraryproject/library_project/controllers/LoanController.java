@@ -3,17 +3,28 @@ package com.libraryproject.library_project.controllers;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.libraryproject.library_project.coalescing.CoalescedReads;
+import com.libraryproject.library_project.dto.BulkLoanDTO;
 import com.libraryproject.library_project.dto.LoanDTO;
+import com.libraryproject.library_project.idempotency.IdempotentRequests;
 import com.libraryproject.library_project.services.LoanService;
+import com.libraryproject.library_project.utils.SparseFields;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Tag(name = "Loan", description = "Gestión de libros en la biblioteca")
 @RestController
@@ -22,19 +33,61 @@ import org.springframework.web.bind.annotation.RequestBody;
 public class LoanController {
 
     private final LoanService loanService;
+    private final IdempotentRequests idempotentRequests;
+    private final CoalescedReads coalescedReads;
 
     @Operation(summary = "Registrar un nuevo prestamo")
     @PostMapping("/createLoan")
-    public ResponseEntity<?> createLoan(@RequestBody LoanDTO loan) {
-        ResponseEntity<?> response = loanService.createLoan(loan);
+    public ResponseEntity<?> createLoan(@RequestBody LoanDTO loan,
+            @RequestHeader(value = IdempotentRequests.KEY_HEADER, required = false) String idempotencyKey) {
+        ResponseEntity<?> response = idempotentRequests.execute(idempotencyKey, "createLoan", loan,
+                () -> loanService.createLoan(loan));
+        return response;
+    }
+
+    @Operation(summary = "Registrar varios prestamos para un mismo usuario")
+    @PostMapping("/createLoans")
+    public ResponseEntity<?> createLoans(@Valid @RequestBody BulkLoanDTO loans) {
+        ResponseEntity<?> response = loanService.createLoans(loans);
+        return response;
+    }
+
+    @Operation(summary = "Registrar la devolución de un libro prestado")
+    @PostMapping("/returnBook/{bookId}")
+    public ResponseEntity<?> returnBook(@PathVariable Long bookId) {
+        ResponseEntity<?> response = loanService.returnBook(bookId);
         return response;
     }
 
     @Operation(summary = "Listar todos los prestamos")
     @GetMapping("/listLoans")
-    public ResponseEntity<?> listLoans() {
-        ResponseEntity<?> response = loanService.listLoans();
+    public ResponseEntity<?> listLoans(@RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        ResponseEntity<?> response = coalescedReads.execute("listLoans", fields, accept, loanService::listLoans);
         return response;
     }
 
+    @Operation(summary = "Listar los prestamos por páginas usando un cursor")
+    @GetMapping("/listLoansPage")
+    public ResponseEntity<?> listLoansPage(@RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size, @RequestParam(required = false) String fields) {
+        ResponseEntity<?> response = loanService.listLoansPage(cursor, size);
+        return SparseFields.select(response, fields);
+    }
+
+    @Operation(summary = "Listar el historial de prestamos de un usuario por páginas")
+    @GetMapping("/user/{userId}")
+    public ResponseEntity<?> listUserLoans(@PathVariable Long userId, @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size, @RequestParam(required = false) String fields) {
+        ResponseEntity<?> response = loanService.listUserLoans(userId, cursor, size);
+        return SparseFields.select(response, fields);
+    }
+
+    @Operation(summary = "Transmite todos los prestamos en formato NDJSON")
+    @GetMapping(value = "/streamLoans", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamLoans() {
+        StreamingResponseBody body = loanService::writeAllLoans;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
 }
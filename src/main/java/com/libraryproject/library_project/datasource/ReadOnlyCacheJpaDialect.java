@@ -0,0 +1,59 @@
+package com.libraryproject.library_project.datasource;
+
+import java.sql.SQLException;
+import java.util.function.BooleanSupplier;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+
+/*
+ * Con réplica, lo que lee una transacción de solo lectura puede estar atrasado
+ * respecto de la base principal. Mientras la réplica atiende las lecturas esas
+ * transacciones no usan la caché de segundo nivel ni la de consultas
+ * (CacheMode.IGNORE): de lo contrario una copia vieja quedaría guardada hasta el
+ * siguiente cambio. CacheMode.GET no alcanza, porque Hibernate 6 guarda en la
+ * caché de consultas el resultado de cada consulta que no encontró en ella.
+ *
+ * Si la réplica está atrasada las lecturas van a la base principal y la caché
+ * se usa como en cualquier otra transacción.
+ */
+public class ReadOnlyCacheJpaDialect extends HibernateJpaDialect {
+
+    private final BooleanSupplier replicaInUse;
+
+    public ReadOnlyCacheJpaDialect(BooleanSupplier replicaInUse) {
+        this.replicaInUse = replicaInUse;
+    }
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws PersistenceException, SQLException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (!definition.isReadOnly() || !replicaInUse.getAsBoolean()) {
+            return transactionData;
+        }
+        Session session = entityManager.unwrap(Session.class);
+        CacheMode previous = session.getCacheMode();
+        session.setCacheMode(CacheMode.IGNORE);
+        return new ReadOnlyTransactionData(transactionData, session, previous);
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof ReadOnlyTransactionData data) {
+            // Con open-in-view la sesión sigue abierta para el resto de la petición
+            data.session().setCacheMode(data.previous());
+            super.cleanupTransaction(data.delegate());
+        } else {
+            super.cleanupTransaction(transactionData);
+        }
+    }
+
+    private record ReadOnlyTransactionData(Object delegate, Session session, CacheMode previous) {
+    }
+}
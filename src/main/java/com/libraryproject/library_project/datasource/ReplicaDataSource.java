@@ -0,0 +1,33 @@
+package com.libraryproject.library_project.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+// Conexiones de solo lectura: de la réplica mientras su retraso sea aceptable,
+// si no de la base principal
+public class ReplicaDataSource extends DelegatingDataSource {
+
+    private final DataSource primary;
+    private final ReplicaLagMonitor monitor;
+
+    public ReplicaDataSource(DataSource replica, DataSource primary, ReplicaLagMonitor monitor) {
+        super(replica);
+        this.primary = primary;
+        this.monitor = monitor;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return monitor.isUsable() ? super.getConnection() : primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return monitor.isUsable() ? super.getConnection(username, password)
+                : primary.getConnection(username, password);
+    }
+}
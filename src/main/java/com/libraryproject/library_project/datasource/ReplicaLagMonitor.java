@@ -0,0 +1,79 @@
+package com.libraryproject.library_project.datasource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/*
+ * Consulta cada library.replica.check-ms el retraso de la réplica (por defecto
+ * Seconds_Behind_Source de SHOW REPLICA STATUS) y decide si las transacciones
+ * de solo lectura pueden usarla. La réplica deja de usarse si el retraso pasa
+ * de library.replica.max-lag, si la replicación está detenida (sin filas o
+ * NULL) o si la consulta falla; vuelve a usarse en cuanto se recupera.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final DataSource replica;
+    private final String lagQuery;
+    private final String lagColumn;
+    private final long maxLagSeconds;
+    private volatile boolean usable;
+    private volatile long lagSeconds = -1;
+
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, String lagColumn, Duration maxLag) {
+        this.replica = replica;
+        this.lagQuery = lagQuery;
+        this.lagColumn = lagColumn;
+        this.maxLagSeconds = maxLag.toSeconds();
+    }
+
+    @Scheduled(fixedDelayString = "${library.replica.check-ms:1000}")
+    public void check() {
+        long lag = readLag();
+        boolean nowUsable = lag >= 0 && lag <= maxLagSeconds;
+        if (nowUsable != usable) {
+            if (nowUsable) {
+                logger.info("La réplica vuelve a atender las lecturas (retraso {} s)", lag);
+            } else {
+                logger.warn("Las lecturas pasan a la base principal: retraso de la réplica {} (máximo {} s)",
+                        lag < 0 ? "desconocido" : lag + " s", maxLagSeconds);
+            }
+        }
+        lagSeconds = lag;
+        usable = nowUsable;
+    }
+
+    public boolean isUsable() {
+        return usable;
+    }
+
+    // Último retraso medido en segundos, o -1 si no se pudo medir
+    public long lagSeconds() {
+        return lagSeconds;
+    }
+
+    private long readLag() {
+        try (Connection connection = replica.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery(lagQuery)) {
+            if (!rs.next()) {
+                return -1;
+            }
+            long lag = rs.getLong(lagColumn);
+            return rs.wasNull() ? -1 : lag;
+        } catch (SQLException e) {
+            logger.debug("No se pudo consultar el retraso de la réplica", e);
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.libraryproject.library_project.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/*
+ * Pools de la base principal y de la réplica. No se registran como DataSource
+ * para que el único DataSource de la aplicación sea el que elige entre ambos
+ * (y el rastreo de SQL no se aplique dos veces).
+ */
+public record ReplicaPools(HikariDataSource primary, HikariDataSource replica) implements AutoCloseable {
+
+    @Override
+    public void close() {
+        try (HikariDataSource p = primary; HikariDataSource r = replica) {
+            // Cierra los dos pools aunque uno falle
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.libraryproject.library_project.diagnostics;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+ * Configuración del diagnóstico de SQL por petición. Se puede encender, apagar
+ * y ajustar en caliente desde /api/diagnostics/sql sin reiniciar el servicio.
+ */
+@Component
+public class SqlDiagnostics {
+
+    private volatile boolean enabled;
+    private volatile int statementThreshold;
+    private volatile long timeThresholdMs;
+    private volatile int repeatThreshold;
+
+    public SqlDiagnostics(@Value("${library.sql-diagnostics.enabled:false}") boolean enabled,
+            @Value("${library.sql-diagnostics.statement-threshold:20}") int statementThreshold,
+            @Value("${library.sql-diagnostics.time-threshold-ms:200}") long timeThresholdMs,
+            @Value("${library.sql-diagnostics.repeat-threshold:5}") int repeatThreshold) {
+        update(enabled, statementThreshold, timeThresholdMs, repeatThreshold);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Cambia solo los valores recibidos; los null se mantienen
+    public synchronized Settings update(Boolean enabled, Integer statementThreshold, Long timeThresholdMs,
+            Integer repeatThreshold) {
+        if (enabled != null) {
+            this.enabled = enabled;
+        }
+        if (statementThreshold != null) {
+            this.statementThreshold = Math.max(statementThreshold, 1);
+        }
+        if (timeThresholdMs != null) {
+            this.timeThresholdMs = Math.max(timeThresholdMs, 0);
+        }
+        if (repeatThreshold != null) {
+            this.repeatThreshold = Math.max(repeatThreshold, 2);
+        }
+        return settings();
+    }
+
+    public Settings settings() {
+        return new Settings(enabled, statementThreshold, timeThresholdMs, repeatThreshold);
+    }
+
+    // La petición hizo demasiadas consultas o esperó demasiado a la base
+    boolean isSlow(SqlRequestStats stats) {
+        return stats.getStatements() >= statementThreshold || stats.getMillis() >= timeThresholdMs;
+    }
+
+    // La consulta más repetida, si se repitió lo suficiente para sospechar un N+1
+    Map.Entry<String, Integer> repeated(SqlRequestStats stats) {
+        Map.Entry<String, Integer> top = stats.mostRepeated();
+        return top != null && top.getValue() >= repeatThreshold ? top : null;
+    }
+
+    public record Settings(boolean enabled, int statementThreshold, long timeThresholdMs, int repeatThreshold) {
+    }
+}
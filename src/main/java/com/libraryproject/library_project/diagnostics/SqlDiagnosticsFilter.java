@@ -0,0 +1,65 @@
+package com.libraryproject.library_project.diagnostics;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+
+/*
+ * Mide las consultas SQL de cada petición mientras el diagnóstico está
+ * encendido. Al terminar deja en el log las peticiones que pasan los umbrales
+ * y las que repiten la misma consulta muchas veces (posible N+1).
+ */
+@Component
+@RequiredArgsConstructor
+public class SqlDiagnosticsFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlDiagnosticsFilter.class);
+
+    private final SqlDiagnostics sqlDiagnostics;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!sqlDiagnostics.isEnabled()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        SqlRequestStats stats = SqlRequestStats.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            SqlRequestStats.clear();
+            report(request, stats);
+        }
+    }
+
+    private void report(HttpServletRequest request, SqlRequestStats stats) {
+        Map.Entry<String, Integer> repeated = sqlDiagnostics.repeated(stats);
+        if (repeated != null) {
+            logger.warn("Posible N+1 en {} {}: {} consultas en {} ms, la misma consulta {} veces: {}",
+                    request.getMethod(), path(request), stats.getStatements(), stats.getMillis(),
+                    repeated.getValue(), repeated.getKey());
+        } else if (sqlDiagnostics.isSlow(stats)) {
+            logger.info("{} {}: {} consultas en {} ms", request.getMethod(), path(request), stats.getStatements(),
+                    stats.getMillis());
+        }
+    }
+
+    // Ruta del controlador (con sus variables sin reemplazar) o la URI si no hay
+    private static String path(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : request.getRequestURI();
+    }
+}
@@ -0,0 +1,49 @@
+package com.libraryproject.library_project.diagnostics;
+
+import java.util.Map;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import lombok.RequiredArgsConstructor;
+
+/*
+ * Agrega a la respuesta las consultas hechas por la petición. Se escriben justo
+ * antes del cuerpo, cuando el servicio ya terminó de usar la base.
+ */
+@RestControllerAdvice
+@RequiredArgsConstructor
+public class SqlDiagnosticsHeaders implements ResponseBodyAdvice<Object> {
+
+    public static final String STATEMENTS = "X-Sql-Statements";
+    public static final String TIME = "X-Sql-Time-Ms";
+    public static final String REPEATED = "X-Sql-Repeated";
+
+    private final SqlDiagnostics sqlDiagnostics;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+            Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+            ServerHttpResponse response) {
+        SqlRequestStats stats = SqlRequestStats.current();
+        if (stats != null) {
+            response.getHeaders().set(STATEMENTS, String.valueOf(stats.getStatements()));
+            response.getHeaders().set(TIME, String.valueOf(stats.getMillis()));
+            Map.Entry<String, Integer> repeated = sqlDiagnostics.repeated(stats);
+            if (repeated != null) {
+                response.getHeaders().set(REPEATED, String.valueOf(repeated.getValue()));
+            }
+        }
+        return body;
+    }
+}
@@ -0,0 +1,63 @@
+package com.libraryproject.library_project.diagnostics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Consultas SQL ejecutadas durante una petición: cuántas, cuánto tiempo pasó
+ * esperando a la base y cuántas veces se repitió cada sentencia. La petición
+ * en curso se guarda en el hilo que la atiende.
+ */
+public final class SqlRequestStats {
+
+    private static final ThreadLocal<SqlRequestStats> CURRENT = new ThreadLocal<>();
+
+    // Límite de sentencias distintas que se cuentan por petición
+    private static final int MAX_DISTINCT = 200;
+
+    private int statements;
+    private long nanos;
+    private final Map<String, Integer> executions = new HashMap<>();
+
+    static SqlRequestStats start() {
+        SqlRequestStats stats = new SqlRequestStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    // Estadísticas de la petición del hilo actual, o null si no se están midiendo
+    public static SqlRequestStats current() {
+        return CURRENT.get();
+    }
+
+    synchronized void record(String sql, long elapsedNanos) {
+        statements++;
+        nanos += elapsedNanos;
+        if (sql != null && (executions.size() < MAX_DISTINCT || executions.containsKey(sql))) {
+            executions.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    public synchronized int getStatements() {
+        return statements;
+    }
+
+    public synchronized long getMillis() {
+        return nanos / 1_000_000;
+    }
+
+    // Sentencia que más veces se ejecutó y cuántas, o null si no hubo ninguna
+    public synchronized Map.Entry<String, Integer> mostRepeated() {
+        Map.Entry<String, Integer> top = null;
+        for (Map.Entry<String, Integer> entry : executions.entrySet()) {
+            if (top == null || entry.getValue() > top.getValue()) {
+                top = entry;
+            }
+        }
+        return top == null ? null : Map.entry(top.getKey(), top.getValue());
+    }
+}
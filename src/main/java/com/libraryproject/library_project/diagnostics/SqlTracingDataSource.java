@@ -0,0 +1,71 @@
+package com.libraryproject.library_project.diagnostics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+/*
+ * Envuelve el DataSource para medir cada sentencia que llega a la base, tanto
+ * las de Hibernate como las de JdbcTemplate. Fuera de una petición medida las
+ * conexiones se entregan sin envolver, así que con el diagnóstico apagado el
+ * único costo es revisar el hilo al pedir la conexión.
+ */
+final class SqlTracingDataSource {
+
+    private SqlTracingDataSource() {
+    }
+
+    static DataSource wrap(DataSource dataSource) {
+        return (DataSource) Proxy.newProxyInstance(SqlTracingDataSource.class.getClassLoader(),
+                new Class<?>[] { DataSource.class }, (proxy, method, args) -> {
+                    Object result = invoke(dataSource, method, args);
+                    SqlRequestStats stats = SqlRequestStats.current();
+                    if (stats != null && result instanceof Connection connection) {
+                        return wrap(connection, stats);
+                    }
+                    return result;
+                });
+    }
+
+    private static Connection wrap(Connection connection, SqlRequestStats stats) {
+        return (Connection) Proxy.newProxyInstance(SqlTracingDataSource.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement statement) {
+                        // prepareStatement y prepareCall reciben el SQL; createStatement no
+                        String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                        return wrap(statement, method.getReturnType(), sql, stats);
+                    }
+                    return result;
+                });
+    }
+
+    private static Object wrap(Statement statement, Class<?> type, String preparedSql, SqlRequestStats stats) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (!method.getName().startsWith("execute")) {
+                return invoke(statement, method, args);
+            }
+            String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : preparedSql;
+            long start = System.nanoTime();
+            try {
+                return invoke(statement, method, args);
+            } finally {
+                stats.record(sql, System.nanoTime() - start);
+            }
+        };
+        return Proxy.newProxyInstance(SqlTracingDataSource.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
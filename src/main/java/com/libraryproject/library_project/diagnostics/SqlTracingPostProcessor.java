@@ -0,0 +1,19 @@
+package com.libraryproject.library_project.diagnostics;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+// Aplica SqlTracingDataSource al DataSource de la aplicación
+@Component
+public class SqlTracingPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+            return SqlTracingDataSource.wrap(dataSource);
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,15 @@
+package com.libraryproject.library_project.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Fila del archivo importado que no se pudo agregar y el motivo
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportErrorDTO {
+
+    private long row;
+    private String message;
+}
@@ -0,0 +1,35 @@
+package com.libraryproject.library_project.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Avance y resultado de una importación de libros. Los contadores son exactos;
+// la lista de errores se corta al llegar al máximo configurado.
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookImportResultDTO {
+
+    private long processed;
+    private long imported;
+    private long duplicates;
+    private long failed;
+    private boolean completed;
+    private List<BookImportErrorDTO> errors = new ArrayList<>();
+
+    // Solo los contadores, para informar el avance sin repetir los errores
+    public BookImportResultDTO progress() {
+        BookImportResultDTO progress = new BookImportResultDTO();
+        progress.setProcessed(processed);
+        progress.setImported(imported);
+        progress.setDuplicates(duplicates);
+        progress.setFailed(failed);
+        progress.setErrors(null);
+        return progress;
+    }
+}
@@ -0,0 +1,27 @@
+package com.libraryproject.library_project.dto;
+
+import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.utils.SparseFieldset;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Libro de los listados: solo los datos del catálogo, sin las fechas de auditoría
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@SparseFieldset
+public class BookSummaryDTO {
+
+    private Long id;
+    private String title;
+    private String author;
+    private String genre;
+    private Boolean availability;
+
+    public static BookSummaryDTO of(Book book) {
+        return new BookSummaryDTO(book.getId(), book.getTitle(), book.getAuthor(), book.getGenre(),
+                book.getAvailability());
+    }
+}
@@ -0,0 +1,42 @@
+package com.libraryproject.library_project.dto;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Varios libros prestados a un mismo usuario en una sola solicitud
+@Data
+@NoArgsConstructor
+public class BulkLoanDTO {
+
+    @NotBlank(message = "El nombre del usuario es obligatorio")
+    private String userName;
+
+    @NotBlank(message = "El correo electrónico es obligatorio")
+    @Email(message = "El correo electrónico no es válido")
+    private String userEmail;
+
+    @NotNull(message = "La cedula del usuario es obligatoria")
+    private Long userId;
+
+    @NotBlank(message = "El teléfono del usuario es obligatorio")
+    private String userPhone;
+
+    @NotBlank(message = "La dirección del usuario es obligatoria")
+    private String userAddress;
+
+    @NotEmpty(message = "Debe indicar al menos un libro")
+    private List<Long> bookIds;
+
+    @NotNull(message = "La fecha de préstamo es obligatoria")
+    private LocalDate loanDate;
+
+    @NotNull(message = "La fecha de devolución es obligatoria")
+    private LocalDate returnDate;
+}
@@ -0,0 +1,23 @@
+package com.libraryproject.library_project.dto;
+
+import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.events.BookChangedEvent;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Cambio de un libro enviado por /api/feed/catalog y al outbox; book es null si se eliminó
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogChangeDTO {
+
+    private Long bookId;
+    private BookSummaryDTO book;
+
+    public static CatalogChangeDTO of(BookChangedEvent event) {
+        Book book = event.book();
+        return new CatalogChangeDTO(event.bookId(), book == null ? null : BookSummaryDTO.of(book));
+    }
+}
@@ -1,12 +1,18 @@
 package com.libraryproject.library_project.dto;
 
+import com.libraryproject.library_project.utils.SparseFieldset;
+
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+
 import java.time.LocalDate;
 
 @Data
+@NoArgsConstructor
+@SparseFieldset
 public class LoanDTO {
 
     private Long loanId;
@@ -35,4 +41,19 @@ public class LoanDTO {
 
     @NotNull(message = "La fecha de devolución es obligatoria")
     private LocalDate returnDate;
+
+    // Constructor usado por las consultas JPQL que proyectan préstamo, usuario y
+    // libro en una sola fila
+    public LoanDTO(Long loanId, String userName, String userEmail, Long userId, String userPhone,
+            String userAddress, Long bookId, LocalDate loanDate, LocalDate returnDate) {
+        this.loanId = loanId;
+        this.userName = userName;
+        this.userEmail = userEmail;
+        this.userId = userId;
+        this.userPhone = userPhone;
+        this.userAddress = userAddress;
+        this.bookId = bookId;
+        this.loanDate = loanDate;
+        this.returnDate = returnDate;
+    }
 }
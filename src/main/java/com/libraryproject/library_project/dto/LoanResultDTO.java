@@ -0,0 +1,25 @@
+package com.libraryproject.library_project.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Resultado de cada libro dentro de un préstamo múltiple
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanResultDTO {
+
+    private Long bookId;
+    private boolean success;
+    private Long loanId;
+    private String message;
+
+    public static LoanResultDTO loaned(Long bookId, Long loanId) {
+        return new LoanResultDTO(bookId, true, loanId, "Préstamo registrado exitosamente");
+    }
+
+    public static LoanResultDTO rejected(Long bookId, String message) {
+        return new LoanResultDTO(bookId, false, null, message);
+    }
+}
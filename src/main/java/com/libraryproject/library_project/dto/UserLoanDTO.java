@@ -0,0 +1,33 @@
+package com.libraryproject.library_project.dto;
+
+import com.libraryproject.library_project.utils.SparseFieldset;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Préstamo del historial de un usuario, con el título y autor del libro
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@SparseFieldset
+public class UserLoanDTO {
+
+    private Long loanId;
+    private Long bookId;
+    private String title;
+    private String author;
+    private LocalDate loanDate;
+    private LocalDate returnDate;
+
+    // null mientras el libro no se devuelva
+    private LocalDateTime returnedAt;
+
+    // Cursor de la paginación: fecha del préstamo e id
+    public String cursor() {
+        return loanDate + ":" + loanId;
+    }
+}
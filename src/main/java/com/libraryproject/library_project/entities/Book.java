@@ -3,11 +3,22 @@ package com.libraryproject.library_project.entities;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.Data;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "books")
+// En la caché de segundo nivel con READ_WRITE: la disponibilidad cambia con
+// cada préstamo y ninguna lectura puede ver un valor anterior al último commit
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "books")
+@Table(name = "books", indexes = {
+        @Index(name = "idx_books_author_title", columnList = "author, title"),
+        @Index(name = "idx_books_title", columnList = "title"),
+        @Index(name = "idx_books_genre_availability", columnList = "genre, availability")
+})
 public class Book {
 
     @Id
@@ -44,4 +55,17 @@ public class Book {
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
     }
+
+    // Copia fuera del contexto de persistencia, para guardarla en memoria sin compartir la entidad
+    public Book copy() {
+        Book copy = new Book();
+        copy.setId(id);
+        copy.setTitle(title);
+        copy.setAuthor(author);
+        copy.setGenre(genre);
+        copy.setAvailability(availability);
+        copy.setCreatedAt(createdAt);
+        copy.setUpdatedAt(updatedAt);
+        return copy;
+    }
 }
@@ -7,7 +7,16 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "loans")
+@Table(name = "loans", indexes = {
+        // Préstamo activo de un libro y préstamos activos de un usuario
+        @Index(name = "idx_loans_book_returned", columnList = "book_id, returned_at"),
+        @Index(name = "idx_loans_user_returned", columnList = "user_id, returned_at"),
+        // Historial de un usuario por fecha; incluye las columnas que se leen de
+        // loans para que la consulta no tenga que ir a la tabla
+        @Index(name = "idx_loans_user_date", columnList = "user_id, loan_date, book_id, return_date, returned_at"),
+        // Préstamos activos por fecha de devolución, para buscar los vencidos
+        @Index(name = "idx_loans_returned_due", columnList = "returned_at, return_date, id")
+})
 public class Loan {
 
     @Id
@@ -26,6 +35,10 @@ public class Loan {
     @Column(name = "return_date", nullable = false)
     private LocalDate returnDate;
 
+    // Momento en que se devolvió el libro; null mientras el préstamo está activo
+    @Column(name = "returned_at")
+    private LocalDateTime returnedAt;
+
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
@@ -0,0 +1,29 @@
+package com.libraryproject.library_project.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Préstamo vencido encontrado por la revisión diaria
+@Data
+@Entity
+@Table(name = "overdue_loans")
+public class OverdueLoan {
+
+    @Id
+    @Column(name = "loan_id")
+    private Long loanId;
+
+    @Column(name = "book_id", nullable = false)
+    private Long bookId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "return_date", nullable = false)
+    private LocalDate returnDate;
+
+    @Column(name = "detected_at", nullable = false)
+    private LocalDateTime detectedAt;
+}
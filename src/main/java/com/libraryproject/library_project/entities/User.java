@@ -3,10 +3,15 @@ package com.libraryproject.library_project.entities;
 import jakarta.persistence.*;
 import lombok.Data;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import java.time.LocalDateTime;
 
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 @Table(name = "users")
 public class User {
 
@@ -35,4 +40,17 @@ public class User {
     public void setUpdatedAt() {
         this.updatedAt = LocalDateTime.now();
     }
+
+    // Copia fuera del contexto de persistencia, para guardarla en memoria sin compartir la entidad
+    public User copy() {
+        User copy = new User();
+        copy.setId(id);
+        copy.setName(name);
+        copy.setEmail(email);
+        copy.setPhone(phone);
+        copy.setAddress(address);
+        copy.setCreatedAt(createdAt);
+        copy.setUpdatedAt(updatedAt);
+        return copy;
+    }
 }
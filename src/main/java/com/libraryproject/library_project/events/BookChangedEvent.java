@@ -0,0 +1,23 @@
+package com.libraryproject.library_project.events;
+
+import com.libraryproject.library_project.entities.Book;
+
+// Evento publicado cada vez que cambia un libro del catálogo (incluida su disponibilidad)
+public record BookChangedEvent(ChangeType type, Long bookId, Book book) {
+
+    public enum ChangeType {
+        CREATED, UPDATED, DELETED
+    }
+
+    public static BookChangedEvent created(Book book) {
+        return new BookChangedEvent(ChangeType.CREATED, book.getId(), book.copy());
+    }
+
+    public static BookChangedEvent updated(Book book) {
+        return new BookChangedEvent(ChangeType.UPDATED, book.getId(), book.copy());
+    }
+
+    public static BookChangedEvent deleted(Long bookId) {
+        return new BookChangedEvent(ChangeType.DELETED, bookId, null);
+    }
+}
@@ -0,0 +1,25 @@
+package com.libraryproject.library_project.events;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import com.libraryproject.library_project.entities.Loan;
+
+// Evento publicado al registrar un préstamo o su devolución; en las devoluciones
+// solo se conocen el libro y el momento
+public record LoanChangedEvent(ChangeType type, Long loanId, Long bookId, Long userId, LocalDate loanDate,
+        LocalDate returnDate, LocalDateTime returnedAt) {
+
+    public enum ChangeType {
+        CREATED, RETURNED
+    }
+
+    public static LoanChangedEvent created(Loan loan) {
+        return new LoanChangedEvent(ChangeType.CREATED, loan.getId(), loan.getBookId(), loan.getUserId(),
+                loan.getLoanDate(), loan.getReturnDate(), null);
+    }
+
+    public static LoanChangedEvent returned(Long bookId, LocalDateTime returnedAt) {
+        return new LoanChangedEvent(ChangeType.RETURNED, null, bookId, null, null, null, returnedAt);
+    }
+}
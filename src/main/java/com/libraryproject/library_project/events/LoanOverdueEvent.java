@@ -0,0 +1,7 @@
+package com.libraryproject.library_project.events;
+
+import java.time.LocalDate;
+
+// Evento publicado una vez por cada préstamo activo que pasó su fecha de devolución
+public record LoanOverdueEvent(Long loanId, Long bookId, Long userId, LocalDate returnDate) {
+}
@@ -0,0 +1,170 @@
+package com.libraryproject.library_project.feed;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryproject.library_project.dto.CatalogChangeDTO;
+import com.libraryproject.library_project.events.BookChangedEvent;
+
+/*
+ * Feed de cambios del catálogo por Server-Sent Events. Cada cambio confirmado
+ * de un libro (alta, modificación, baja y los cambios de disponibilidad por
+ * préstamos y devoluciones) se serializa una sola vez y se encola para cada
+ * cliente conectado; ningún cliente bloquea al que publica.
+ *
+ * Cada evento lleva un número de secuencia como id. Se guardan los últimos
+ * library.feed.replay-size eventos, así un cliente que se reconecta con
+ * Last-Event-ID recibe lo que se perdió; si ya no están, recibe un resync.
+ */
+@Component
+public class ChangeFeed {
+
+    public static final String RESYNC = "resync";
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeed.class);
+
+    private final ObjectMapper objectMapper;
+    private final Executor executor;
+    private final int bufferSize;
+    private final int replaySize;
+    private final int maxSubscribers;
+    private final long timeoutMillis;
+    private final Set<FeedSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Deque<FeedEvent> recent = new ArrayDeque<>();
+    private long sequence;
+
+    @Autowired
+    public ChangeFeed(ObjectMapper objectMapper,
+            @Value("${library.feed.buffer-size:256}") int bufferSize,
+            @Value("${library.feed.replay-size:1000}") int replaySize,
+            @Value("${library.feed.max-subscribers:10000}") int maxSubscribers,
+            @Value("${library.feed.timeout:30m}") Duration timeout) {
+        this(objectMapper, Executors.newVirtualThreadPerTaskExecutor(), bufferSize, replaySize, maxSubscribers,
+                timeout);
+    }
+
+    ChangeFeed(ObjectMapper objectMapper, Executor executor, int bufferSize, int replaySize, int maxSubscribers,
+            Duration timeout) {
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.bufferSize = Math.max(bufferSize, 1);
+        this.replaySize = Math.max(replaySize, 0);
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    // Conecta un cliente, o devuelve null si ya se alcanzó el máximo de clientes
+    public SseEmitter subscribe(Long lastEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        FeedSubscriber registered = new FeedSubscriber(emitter, bufferSize, executor, subscribers::remove);
+        emitter.onCompletion(registered::close);
+        emitter.onTimeout(registered::close);
+        emitter.onError(e -> registered.close());
+
+        // Se registra y se calcula lo que debe repetir bajo el mismo candado que
+        // publica, así no se pierde ni se repite ningún evento
+        synchronized (recent) {
+            if (lastEventId != null) {
+                List<FeedEvent> missed = missedSince(lastEventId);
+                Set<DataWithMediaType> resync = resync();
+                if (missed == null) {
+                    registered.offer(resync, resync);
+                } else {
+                    missed.forEach(event -> registered.offer(event.sse(), resync));
+                }
+            }
+            subscribers.add(registered);
+        }
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        String data;
+        try {
+            data = objectMapper.writeValueAsString(CatalogChangeDTO.of(event));
+        } catch (JsonProcessingException e) {
+            logger.error("No se pudo serializar el cambio del libro: {}", event.bookId(), e);
+            return;
+        }
+        publish("book-" + event.type().name().toLowerCase(Locale.ROOT), data);
+    }
+
+    // Mantiene viva la conexión a través de proxies y detecta clientes desconectados
+    @Scheduled(fixedDelayString = "${library.feed.heartbeat-ms:15000}")
+    public void heartbeat() {
+        Set<DataWithMediaType> ping = SseEmitter.event().comment("ping").build();
+        subscribers.forEach(subscriber -> subscriber.offerIfEmpty(ping));
+    }
+
+    void publish(String name, String data) {
+        synchronized (recent) {
+            long id = ++sequence;
+            FeedEvent event = new FeedEvent(id,
+                    SseEmitter.event().id(Long.toString(id)).name(name).data(data).build());
+            if (replaySize > 0) {
+                if (recent.size() == replaySize) {
+                    recent.removeFirst();
+                }
+                recent.addLast(event);
+            }
+            Set<DataWithMediaType> resync = resync();
+            subscribers.forEach(subscriber -> subscriber.offer(event.sse(), resync));
+        }
+    }
+
+    // Eventos posteriores a lastEventId, o null si alguno ya no está guardado
+    private List<FeedEvent> missedSince(long lastEventId) {
+        if (lastEventId > sequence) {
+            return null;
+        }
+        long oldest = recent.isEmpty() ? sequence + 1 : recent.peekFirst().id();
+        if (lastEventId + 1 < oldest) {
+            return null;
+        }
+        List<FeedEvent> missed = new ArrayList<>();
+        for (FeedEvent event : recent) {
+            if (event.id() > lastEventId) {
+                missed.add(event);
+            }
+        }
+        return missed;
+    }
+
+    // Pide al cliente volver a descargar el listado; lleva la secuencia actual
+    // para que pueda reconectarse desde ahí
+    private Set<DataWithMediaType> resync() {
+        return SseEmitter.event().id(Long.toString(sequence)).name(RESYNC).data("{}").build();
+    }
+
+    // El evento se arma una sola vez y se comparte entre todos los clientes
+    private record FeedEvent(long id, Set<DataWithMediaType> sse) {
+    }
+}
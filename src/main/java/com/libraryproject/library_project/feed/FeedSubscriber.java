@@ -0,0 +1,89 @@
+package com.libraryproject.library_project.feed;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/*
+ * Un cliente conectado al feed. Los eventos esperan en una cola acotada y un
+ * solo hilo a la vez los escribe en la conexión, así un cliente lento nunca
+ * frena a quien publica ni a los demás clientes. Si la cola se llena se
+ * descartan los eventos pendientes y se envía un único "resync": el cliente
+ * vuelve a descargar el listado (con If-None-Match) y sigue escuchando.
+ */
+class FeedSubscriber {
+
+    private final SseEmitter emitter;
+    private final BlockingQueue<Set<DataWithMediaType>> queue;
+    private final Executor executor;
+    private final Consumer<FeedSubscriber> onClose;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    FeedSubscriber(SseEmitter emitter, int bufferSize, Executor executor, Consumer<FeedSubscriber> onClose) {
+        this.emitter = emitter;
+        this.queue = new ArrayBlockingQueue<>(bufferSize);
+        this.executor = executor;
+        this.onClose = onClose;
+    }
+
+    SseEmitter emitter() {
+        return emitter;
+    }
+
+    // Encola el evento sin bloquear; si no cabe, reemplaza la cola por un resync
+    void offer(Set<DataWithMediaType> event, Set<DataWithMediaType> resync) {
+        if (closed.get()) {
+            return;
+        }
+        if (!queue.offer(event)) {
+            queue.clear();
+            queue.offer(resync);
+        }
+        scheduleDrain();
+    }
+
+    // Para los latidos: si la cola tiene eventos pendientes no hace falta
+    void offerIfEmpty(Set<DataWithMediaType> event) {
+        if (!closed.get() && queue.isEmpty() && queue.offer(event)) {
+            scheduleDrain();
+        }
+    }
+
+    void close() {
+        if (closed.compareAndSet(false, true)) {
+            queue.clear();
+            onClose.accept(this);
+        }
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        do {
+            Set<DataWithMediaType> event;
+            while (!closed.get() && (event = queue.poll()) != null) {
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // El cliente se desconectó o la conexión ya terminó
+                    close();
+                    emitter.completeWithError(e);
+                }
+            }
+            draining.set(false);
+            // Un evento pudo llegar justo después de vaciar la cola
+        } while (!closed.get() && !queue.isEmpty() && draining.compareAndSet(false, true));
+    }
+}
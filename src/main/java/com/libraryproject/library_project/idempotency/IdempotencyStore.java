@@ -0,0 +1,17 @@
+package com.libraryproject.library_project.idempotency;
+
+import java.util.Optional;
+
+/*
+ * Respuestas ya entregadas, por clave de idempotencia. La implementación por
+ * defecto las guarda en memoria (library.idempotency.store=memory); para
+ * compartirlas entre instancias se usa otro valor y se registra un bean que las
+ * guarde, por ejemplo, en una tabla con la huella de la petición, el estado y
+ * el JSON de la respuesta.
+ */
+public interface IdempotencyStore {
+
+    Optional<StoredResponse> find(String key);
+
+    void save(String key, StoredResponse response);
+}
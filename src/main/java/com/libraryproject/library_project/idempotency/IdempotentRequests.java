@@ -0,0 +1,177 @@
+package com.libraryproject.library_project.idempotency;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.libraryproject.library_project.utils.ApiResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Peticiones con cabecera Idempotency-Key. La primera con una clave se ejecuta
+ * y su respuesta se guarda; las siguientes con la misma clave reciben esa
+ * respuesta sin llegar al servicio ni a la base. Si llega una repetición
+ * mientras la primera sigue en curso, espera su resultado en lugar de
+ * ejecutarse otra vez.
+ *
+ * Las respuestas 5xx no se guardan, para que el cliente pueda reintentar. Las
+ * claves valen por operación: la misma clave en createLoan y en addBook son
+ * peticiones distintas.
+ *
+ * Junto con cada respuesta se guarda la huella (SHA-256) del cuerpo de la
+ * petición. Si la clave se repite con otro cuerpo se responde 422 en lugar de
+ * entregar la respuesta de una petición distinta.
+ */
+@Component
+public class IdempotentRequests {
+
+    public static final String KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    public static final String REPLAYS_COUNTER = "library.idempotency.replays";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    // Mismo JSON para el mismo cuerpo, sin importar el orden de los campos
+    private static final ObjectMapper FINGERPRINT_MAPPER = JsonMapper.builder()
+            .findAndAddModules()
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotentRequests.class);
+
+    private final IdempotencyStore store;
+    private final Duration waitTimeout;
+    private final Counter replays;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotentRequests(IdempotencyStore store, MeterRegistry registry,
+            @Value("${library.idempotency.wait:30s}") Duration waitTimeout) {
+        this.store = store;
+        this.waitTimeout = waitTimeout;
+        this.replays = Counter.builder(REPLAYS_COUNTER)
+                .description("Respuestas entregadas de nuevo por una clave de idempotencia repetida")
+                .register(registry);
+    }
+
+    // Sin clave la operación se ejecuta siempre. request es el cuerpo de la petición
+    public ResponseEntity<?> execute(String key, String operation, Object request,
+            Supplier<ResponseEntity<?>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>("La cabecera Idempotency-Key no es válida.", null));
+        }
+
+        String scopedKey = operation + ":" + key;
+        String fingerprint = fingerprint(request);
+        Optional<StoredResponse> stored = store.find(scopedKey);
+        if (stored.isPresent()) {
+            return replay(stored.get(), fingerprint);
+        }
+
+        CompletableFuture<ResponseEntity<?>> execution = new CompletableFuture<>();
+        InFlight current = new InFlight(fingerprint, execution);
+        InFlight running = inFlight.putIfAbsent(scopedKey, current);
+        if (running != null) {
+            if (!running.fingerprint().equals(fingerprint)) {
+                return mismatch();
+            }
+            return await(running.execution(), scopedKey);
+        }
+        try {
+            // La ejecución anterior pudo terminar entre la consulta y el registro
+            stored = store.find(scopedKey);
+            if (stored.isPresent()) {
+                execution.complete(stored.get().response());
+                return replay(stored.get(), fingerprint);
+            }
+            ResponseEntity<?> response = action.get();
+            if (!response.getStatusCode().is5xxServerError()) {
+                store.save(scopedKey, new StoredResponse(fingerprint, response));
+            }
+            execution.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            execution.completeExceptionally(e);
+            throw e;
+        } finally {
+            // Se quita después de guardar: una repetición posterior encuentra la respuesta
+            inFlight.remove(scopedKey, current);
+        }
+    }
+
+    private ResponseEntity<?> await(CompletableFuture<ResponseEntity<?>> running, String scopedKey) {
+        try {
+            return replay(running.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ApiResponse<>("Hay otra petición en curso con la misma clave de idempotencia.", null));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ApiResponse<>("Hay otra petición en curso con la misma clave de idempotencia.", null));
+        } catch (ExecutionException e) {
+            logger.error("Falló la petición con clave de idempotencia {}", scopedKey, e.getCause());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse<>("Error al procesar la petición.", null));
+        }
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String fingerprint) {
+        if (!stored.fingerprint().equals(fingerprint)) {
+            return mismatch();
+        }
+        return replay(stored.response());
+    }
+
+    private static ResponseEntity<?> mismatch() {
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .body(new ApiResponse<>("La clave de idempotencia ya se usó con otra petición.", null));
+    }
+
+    private static String fingerprint(Object request) {
+        try {
+            byte[] json = FINGERPRINT_MAPPER.writeValueAsBytes(request);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No se pudo calcular la huella de la petición", e);
+        }
+    }
+
+    private ResponseEntity<?> replay(ResponseEntity<?> response) {
+        replays.increment();
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(REPLAYED_HEADER, "true")
+                .body(response.getBody());
+    }
+
+    private record InFlight(String fingerprint, CompletableFuture<ResponseEntity<?>> execution) {
+    }
+}
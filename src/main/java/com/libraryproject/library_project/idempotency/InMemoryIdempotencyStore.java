@@ -0,0 +1,37 @@
+package com.libraryproject.library_project.idempotency;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+// Respuestas en memoria con tamaño y tiempo de vida limitados
+@Component
+@ConditionalOnProperty(name = "library.idempotency.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final Cache<String, StoredResponse> responses;
+
+    public InMemoryIdempotencyStore(@Value("${library.idempotency.maximum-size:10000}") long maximumSize,
+            @Value("${library.idempotency.ttl:24h}") Duration ttl) {
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @Override
+    public Optional<StoredResponse> find(String key) {
+        return Optional.ofNullable(responses.getIfPresent(key));
+    }
+
+    @Override
+    public void save(String key, StoredResponse response) {
+        responses.put(key, response);
+    }
+}
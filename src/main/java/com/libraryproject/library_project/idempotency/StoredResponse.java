@@ -0,0 +1,7 @@
+package com.libraryproject.library_project.idempotency;
+
+import org.springframework.http.ResponseEntity;
+
+// Respuesta entregada junto con la huella (SHA-256) del cuerpo de la petición que la produjo
+public record StoredResponse(String fingerprint, ResponseEntity<?> response) {
+}
@@ -0,0 +1,34 @@
+package com.libraryproject.library_project.importer;
+
+import java.io.BufferedReader;
+
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Formatos aceptados por la importación de libros, según el Content-Type
+public enum BookImportFormat {
+    CSV, NDJSON;
+
+    public static final String CSV_VALUE = "text/csv";
+
+    public static BookImportFormat fromContentType(String contentType) {
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            if (mediaType.isCompatibleWith(MediaType.parseMediaType(CSV_VALUE))) {
+                return CSV;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_NDJSON)) {
+                return NDJSON;
+            }
+        } catch (IllegalArgumentException e) {
+            // Content-Type vacío o mal formado (InvalidMediaTypeException): se informa abajo como formato no soportado
+        }
+        throw new IllegalArgumentException("Formato no soportado. Use " + CSV_VALUE + " o "
+                + MediaType.APPLICATION_NDJSON_VALUE + ".");
+    }
+
+    BookRowReader open(BufferedReader reader, ObjectMapper objectMapper) {
+        return this == CSV ? new CsvBookRowReader(reader) : new NdjsonBookRowReader(reader, objectMapper);
+    }
+}
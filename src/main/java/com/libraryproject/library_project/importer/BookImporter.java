@@ -0,0 +1,189 @@
+package com.libraryproject.library_project.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryproject.library_project.dto.BookImportErrorDTO;
+import com.libraryproject.library_project.dto.BookImportResultDTO;
+import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.events.BookChangedEvent;
+import com.libraryproject.library_project.importer.BookRowReader.BookRow;
+import com.libraryproject.library_project.metrics.LibraryMetrics;
+import com.libraryproject.library_project.repositories.BookRepository;
+import com.libraryproject.library_project.utils.TextFormatter;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/*
+ * Importa un catálogo completo leyendo el archivo fila por fila. Cada fila se
+ * valida con las mismas reglas de Book, se le da el formato de addBook y se
+ * descarta si ya apareció antes en el archivo o ya existe en la base (mismo
+ * título y autor, sin distinguir mayúsculas, como compara MySQL). Los libros se
+ * escriben en lotes JDBC de tamaño configurable, cada uno en su propia
+ * transacción: si la importación se corta, los lotes anteriores quedan
+ * guardados.
+ */
+@Component
+public class BookImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookImporter.class);
+
+    private final BookRepository bookRepository;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LibraryMetrics libraryMetrics;
+    private final int batchSize;
+    private final int maxErrors;
+
+    public BookImporter(BookRepository bookRepository, ObjectMapper objectMapper, Validator validator,
+            TransactionTemplate transactionTemplate, ApplicationEventPublisher eventPublisher,
+            LibraryMetrics libraryMetrics,
+            @Value("${library.import.batch-size:1000}") int batchSize,
+            @Value("${library.import.max-errors:1000}") int maxErrors) {
+        this.bookRepository = bookRepository;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.libraryMetrics = libraryMetrics;
+        this.batchSize = Math.max(batchSize, 1);
+        this.maxErrors = Math.max(maxErrors, 0);
+    }
+
+    // Importa el archivo y avisa a progress después de cada lote guardado
+    public BookImportResultDTO importBooks(InputStream in, BookImportFormat format,
+            Consumer<BookImportResultDTO> progress) throws IOException {
+        BookImportResultDTO result = new BookImportResultDTO();
+        Set<String> seen = new HashSet<>();
+        List<BookRow> pending = new ArrayList<>(batchSize);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        BookRowReader rows = format.open(reader, objectMapper);
+        BookRow row;
+        while ((row = rows.next()) != null) {
+            result.setProcessed(result.getProcessed() + 1);
+            if (row.error() != null) {
+                fail(result, row.row(), row.error());
+                continue;
+            }
+
+            Book book = row.book();
+            String violations = validate(book);
+            if (violations != null) {
+                fail(result, row.row(), violations);
+                continue;
+            }
+
+            book.setId(null);
+            book.setTitle(TextFormatter.capitalize(book.getTitle()));
+            book.setAuthor(TextFormatter.capitalize(book.getAuthor()));
+            if (book.getGenre() != null && !book.getGenre().isEmpty()) {
+                book.setGenre(TextFormatter.capitalize(book.getGenre()));
+            }
+
+            if (!seen.add(key(book.getTitle(), book.getAuthor()))) {
+                duplicate(result, row.row());
+                continue;
+            }
+
+            pending.add(row);
+            if (pending.size() == batchSize) {
+                writeBatch(pending, result);
+                progress.accept(result.progress());
+            }
+        }
+        if (!pending.isEmpty()) {
+            writeBatch(pending, result);
+            progress.accept(result.progress());
+        }
+
+        result.setCompleted(true);
+        logger.info("Importación terminada: {} filas, {} libros agregados, {} duplicados, {} con errores",
+                result.getProcessed(), result.getImported(), result.getDuplicates(), result.getFailed());
+        return result;
+    }
+
+    // Descarta los que ya existen en la base y guarda el resto en un solo lote
+    private void writeBatch(List<BookRow> pending, BookImportResultDTO result) {
+        long imported = result.getImported();
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<String> titles = pending.stream().map(row -> row.book().getTitle()).collect(Collectors.toSet());
+            Set<String> existing = new HashSet<>();
+            for (BookRepository.TitleAndAuthor book : bookRepository.findByTitleIn(titles)) {
+                existing.add(key(book.getTitle(), book.getAuthor()));
+            }
+
+            List<Book> books = new ArrayList<>(pending.size());
+            for (BookRow row : pending) {
+                if (existing.contains(key(row.book().getTitle(), row.book().getAuthor()))) {
+                    duplicate(result, row.row());
+                } else {
+                    books.add(row.book());
+                }
+            }
+
+            bookRepository.insertAll(books);
+            for (Book book : books) {
+                eventPublisher.publishEvent(BookChangedEvent.created(book));
+            }
+            result.setImported(result.getImported() + books.size());
+        });
+        pending.clear();
+        libraryMetrics.bookOutcome(LibraryMetrics.IMPORTED, result.getImported() - imported);
+
+        logger.info("Importación en curso: {} filas procesadas, {} libros agregados", result.getProcessed(),
+                result.getImported());
+    }
+
+    // Mensajes de las restricciones de Book que no se cumplen, o null si es válido
+    private String validate(Book book) {
+        Set<ConstraintViolation<Book>> violations = validator.validate(book);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(" "));
+    }
+
+    private void duplicate(BookImportResultDTO result, long row) {
+        result.setDuplicates(result.getDuplicates() + 1);
+        libraryMetrics.bookOutcome(LibraryMetrics.DUPLICATE);
+        addError(result, row, "El libro ya existe en la biblioteca.");
+    }
+
+    private void fail(BookImportResultDTO result, long row, String message) {
+        result.setFailed(result.getFailed() + 1);
+        libraryMetrics.bookOutcome(LibraryMetrics.INVALID);
+        addError(result, row, message);
+    }
+
+    private void addError(BookImportResultDTO result, long row, String message) {
+        if (result.getErrors().size() < maxErrors) {
+            result.getErrors().add(new BookImportErrorDTO(row, message));
+        }
+    }
+
+    private static String key(String title, String author) {
+        return title.toLowerCase(Locale.ROOT) + '\u0000' + author.toLowerCase(Locale.ROOT);
+    }
+}
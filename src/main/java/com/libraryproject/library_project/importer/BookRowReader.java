@@ -0,0 +1,24 @@
+package com.libraryproject.library_project.importer;
+
+import java.io.IOException;
+
+import com.libraryproject.library_project.entities.Book;
+
+// Lee el archivo importado una fila a la vez, sin cargarlo completo en memoria
+interface BookRowReader {
+
+    // Siguiente fila, o null al terminar el archivo
+    BookRow next() throws IOException;
+
+    // Una fila leída: el libro, o el motivo por el que no se pudo leer
+    record BookRow(long row, Book book, String error) {
+
+        static BookRow of(long row, Book book) {
+            return new BookRow(row, book, null);
+        }
+
+        static BookRow failed(long row, String error) {
+            return new BookRow(row, null, error);
+        }
+    }
+}
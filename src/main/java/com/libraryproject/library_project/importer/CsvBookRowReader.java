@@ -0,0 +1,145 @@
+package com.libraryproject.library_project.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.libraryproject.library_project.entities.Book;
+
+/*
+ * CSV con encabezado (title, author, genre, availability en cualquier orden).
+ * Acepta campos entre comillas con comas, comillas dobles ("") y saltos de línea
+ * dentro; el número de fila informado es la línea donde empieza el registro.
+ */
+class CsvBookRowReader implements BookRowReader {
+
+    private final BufferedReader reader;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private long line = 0;
+    private long recordStart = 0;
+
+    CsvBookRowReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public BookRow next() throws IOException {
+        if (columns.isEmpty()) {
+            readHeader();
+        }
+
+        List<String> fields;
+        while ((fields = readRecord()) != null) {
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                continue;
+            }
+            return toRow(fields);
+        }
+        return null;
+    }
+
+    private void readHeader() throws IOException {
+        List<String> header = readRecord();
+        if (header == null) {
+            throw new IllegalArgumentException("El archivo CSV está vacío.");
+        }
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase(Locale.ROOT);
+            // Marca de orden de bytes que agregan algunas planillas
+            if (i == 0 && name.startsWith("\uFEFF")) {
+                name = name.substring(1);
+            }
+            columns.put(name, i);
+        }
+        if (!columns.containsKey("title") || !columns.containsKey("author")) {
+            throw new IllegalArgumentException("El archivo CSV debe tener las columnas title y author.");
+        }
+    }
+
+    private BookRow toRow(List<String> fields) {
+        Book book = new Book();
+        book.setTitle(field(fields, "title"));
+        book.setAuthor(field(fields, "author"));
+        book.setGenre(field(fields, "genre"));
+
+        String availability = field(fields, "availability");
+        if (availability != null) {
+            switch (availability.toLowerCase(Locale.ROOT)) {
+                case "true", "1", "si", "sí" -> book.setAvailability(true);
+                case "false", "0", "no" -> book.setAvailability(false);
+                default -> {
+                    return BookRow.failed(recordStart, "La disponibilidad debe ser true o false.");
+                }
+            }
+        }
+        return BookRow.of(recordStart, book);
+    }
+
+    // Valor de la columna, o null si no existe o está vacío
+    private String field(List<String> fields, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // Lee un registro completo, que puede ocupar varias líneas si tiene comillas
+    private List<String> readRecord() throws IOException {
+        String text = reader.readLine();
+        if (text == null) {
+            return null;
+        }
+        line++;
+        recordStart = line;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == text.length()) {
+                if (!quoted) {
+                    break;
+                }
+                // Salto de línea dentro de un campo entre comillas
+                text = reader.readLine();
+                if (text == null) {
+                    break;
+                }
+                line++;
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+
+            char c = text.charAt(i++);
+            if (quoted) {
+                if (c == '"') {
+                    if (i < text.length() && text.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,38 @@
+package com.libraryproject.library_project.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryproject.library_project.entities.Book;
+
+// Un libro en JSON por línea; una línea mal formada solo afecta a esa fila
+class NdjsonBookRowReader implements BookRowReader {
+
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper;
+    private long line = 0;
+
+    NdjsonBookRowReader(BufferedReader reader, ObjectMapper objectMapper) {
+        this.reader = reader;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public BookRow next() throws IOException {
+        String text;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (text.isBlank()) {
+                continue;
+            }
+            try {
+                return BookRow.of(line, objectMapper.readValue(text, Book.class));
+            } catch (JsonProcessingException e) {
+                return BookRow.failed(line, "JSON inválido: " + e.getOriginalMessage());
+            }
+        }
+        return null;
+    }
+}
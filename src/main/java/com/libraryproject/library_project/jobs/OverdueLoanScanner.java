@@ -0,0 +1,135 @@
+package com.libraryproject.library_project.jobs;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.libraryproject.library_project.entities.JobCheckpoint;
+import com.libraryproject.library_project.events.LoanOverdueEvent;
+import com.libraryproject.library_project.repositories.JobCheckpointRepository;
+import com.libraryproject.library_project.repositories.LoanRepository;
+import com.libraryproject.library_project.repositories.OverdueLoanRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*
+ * Busca una vez al día los préstamos activos que pasaron su fecha de devolución,
+ * los guarda en overdue_loans y publica un LoanOverdueEvent por cada uno. Recorre solo los préstamos sin
+ * devolver, en bloques ordenados por (return_date, id), y guarda el último
+ * procesado después de cada bloque, en la misma transacción que sus filas de
+ * overdue_loans: el punto solo avanza si el bloque quedó guardado. La siguiente ejecución empieza donde quedó
+ * la anterior y solo ve los préstamos que vencieron desde entonces. Un
+ * préstamo registrado con una fecha de devolución anterior a ese punto no se
+ * informa.
+ */
+@Component
+@ConditionalOnProperty(name = "library.overdue.enabled", havingValue = "true", matchIfMissing = true)
+public class OverdueLoanScanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(OverdueLoanScanner.class);
+
+    public static final String JOB_NAME = "overdue-loans";
+    public static final String SCAN_TIMER = "library.overdue.scan";
+    public static final String ROWS_COUNTER = "library.overdue.rows";
+
+    private final LoanRepository loanRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final OverdueLoanRepository overdueLoanRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer scanTimer;
+    private final Counter rowsCounter;
+    private final int chunkSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public OverdueLoanScanner(LoanRepository loanRepository, JobCheckpointRepository checkpointRepository,
+            OverdueLoanRepository overdueLoanRepository, ApplicationEventPublisher eventPublisher, TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry, @Value("${library.overdue.chunk-size:1000}") int chunkSize) {
+        this.loanRepository = loanRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.overdueLoanRepository = overdueLoanRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.scanTimer = Timer.builder(SCAN_TIMER).description("Duración de la revisión de préstamos vencidos")
+                .register(meterRegistry);
+        this.rowsCounter = Counter.builder(ROWS_COUNTER).description("Préstamos vencidos procesados")
+                .register(meterRegistry);
+        this.chunkSize = Math.max(chunkSize, 1);
+    }
+
+    @Scheduled(cron = "${library.overdue.cron:0 0 2 * * *}")
+    public void run() {
+        scan(LocalDate.now());
+    }
+
+    // Procesa los préstamos vencidos antes de "today"; devuelve cuántos encontró
+    public long scan(LocalDate today) {
+        if (!running.compareAndSet(false, true)) {
+            logger.warn("La revisión de préstamos vencidos ya está en curso");
+            return 0;
+        }
+        long start = System.nanoTime();
+        long processed = 0;
+        try {
+            JobCheckpoint checkpoint = checkpointRepository.findById(JOB_NAME).orElseGet(OverdueLoanScanner::initial);
+            List<LoanOverdueEvent> chunk;
+            do {
+                chunk = nextChunk(checkpoint, today);
+                processed += chunk.size();
+            } while (chunk.size() == chunkSize);
+
+            logger.info("Revisión de préstamos vencidos terminada: {} préstamos en {} ms", processed,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return processed;
+        } finally {
+            scanTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            running.set(false);
+        }
+    }
+
+    // Lee un bloque, lo guarda, publica sus eventos y avanza el punto de control en la misma transacción
+    private List<LoanOverdueEvent> nextChunk(JobCheckpoint checkpoint, LocalDate today) {
+        return transactionTemplate.execute(status -> {
+            List<LoanOverdueEvent> chunk = loanRepository.findOverdueAfter(today, checkpoint.getLastDate(),
+                    checkpoint.getLastId(), PageRequest.ofSize(chunkSize));
+            if (chunk.isEmpty()) {
+                return chunk;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            overdueLoanRepository.insertAll(chunk, now);
+            for (LoanOverdueEvent overdue : chunk) {
+                eventPublisher.publishEvent(overdue);
+            }
+            LoanOverdueEvent last = chunk.get(chunk.size() - 1);
+            checkpoint.setLastDate(last.returnDate());
+            checkpoint.setLastId(last.loanId());
+            checkpoint.setUpdatedAt(now);
+            checkpointRepository.save(checkpoint);
+            rowsCounter.increment(chunk.size());
+            return chunk;
+        });
+    }
+
+    private static JobCheckpoint initial() {
+        JobCheckpoint checkpoint = new JobCheckpoint();
+        checkpoint.setName(JOB_NAME);
+        checkpoint.setLastDate(LocalDate.EPOCH);
+        checkpoint.setLastId(0L);
+        return checkpoint;
+    }
+}
@@ -0,0 +1,48 @@
+package com.libraryproject.library_project.metrics;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Contadores por resultado de las operaciones del negocio. Los tiempos de los
+ * servicios y repositorios los mide Micrometer por su cuenta (ver MetricsConfig);
+ * aquí se cuenta qué pasó: préstamos registrados o rechazados y por qué, libros
+ * agregados, duplicados o inválidos.
+ */
+@Component
+public class LibraryMetrics {
+
+    public static final String LOANS = "library.loans";
+    public static final String BOOKS = "library.books";
+
+    public static final String CREATED = "created";
+    public static final String RETURNED = "returned";
+    public static final String NOT_LOANED = "not_loaned";
+    public static final String IMPORTED = "imported";
+    public static final String UNAVAILABLE = "unavailable";
+    public static final String MISSING = "missing";
+    public static final String DUPLICATE = "duplicate";
+    public static final String INVALID = "invalid";
+    public static final String ERROR = "error";
+
+    private final MeterRegistry registry;
+
+    public LibraryMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void loanOutcome(String outcome) {
+        registry.counter(LOANS, "outcome", outcome).increment();
+    }
+
+    public void bookOutcome(String outcome) {
+        bookOutcome(outcome, 1);
+    }
+
+    public void bookOutcome(String outcome, long count) {
+        if (count > 0) {
+            registry.counter(BOOKS, "outcome", outcome).increment(count);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.libraryproject.library_project.outbox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryproject.library_project.entities.OutboxEvent;
+
+/*
+ * Agrega cada lote al final de un archivo NDJSON, un evento por línea, y espera
+ * a que llegue al disco antes de confirmar el envío.
+ */
+@Component
+@ConditionalOnProperty(name = "library.outbox.sink", havingValue = "file", matchIfMissing = true)
+public class FileOutboxSink implements OutboxSink {
+
+    private final ObjectMapper objectMapper;
+    private final Path file;
+
+    public FileOutboxSink(ObjectMapper objectMapper,
+            @Value("${library.outbox.file:library-outbox.ndjson}") Path file) {
+        this.objectMapper = objectMapper;
+        this.file = file;
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        for (OutboxEvent event : events) {
+            lines.write(objectMapper.writeValueAsBytes(new Line(event.getId(), event.getAggregateType(),
+                    event.getAggregateId(), event.getEventType(), event.getCreatedAt(), event.getPayload())));
+            lines.write('\n');
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    // El payload ya es JSON y se escribe tal cual
+    record Line(Long id, String aggregateType, Long aggregateId, String eventType, LocalDateTime createdAt,
+            @JsonRawValue String payload) {
+    }
+}
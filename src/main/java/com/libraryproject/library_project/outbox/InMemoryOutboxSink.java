@@ -0,0 +1,30 @@
+package com.libraryproject.library_project.outbox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.libraryproject.library_project.entities.OutboxEvent;
+
+// Guarda los eventos en memoria; para pruebas y desarrollo
+@Component
+@ConditionalOnProperty(name = "library.outbox.sink", havingValue = "memory")
+public class InMemoryOutboxSink implements OutboxSink {
+
+    private final List<OutboxEvent> events = new ArrayList<>();
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> batch) {
+        events.addAll(batch);
+    }
+
+    public synchronized List<OutboxEvent> events() {
+        return new ArrayList<>(events);
+    }
+
+    public synchronized void clear() {
+        events.clear();
+    }
+}
@@ -0,0 +1,100 @@
+package com.libraryproject.library_project.outbox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.libraryproject.library_project.entities.OutboxEvent;
+import com.libraryproject.library_project.repositories.OutboxRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Envía los eventos del outbox al OutboxSink configurado, en lotes ordenados
+ * por id. Cada lote se lee, se envía y se borra en una transacción: si el envío
+ * o el borrado fallan, el lote sigue en la tabla y se reenvía completo en la
+ * siguiente ejecución (entrega al menos una vez). Como los lotes salen en orden
+ * de id y un lote fallido bloquea los siguientes, los eventos de un mismo libro
+ * llegan en el orden en que se confirmaron.
+ */
+@Component
+@ConditionalOnProperty(name = "library.outbox.enabled", havingValue = "true")
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    public static final String RELAYED_COUNTER = "library.outbox.relayed";
+    public static final String FAILURES_COUNTER = "library.outbox.failures";
+
+    private final OutboxRepository outboxRepository;
+    private final OutboxSink sink;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter relayedCounter;
+    private final Counter failuresCounter;
+    private final int batchSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public OutboxRelay(OutboxRepository outboxRepository, OutboxSink sink, TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry, @Value("${library.outbox.batch-size:500}") int batchSize) {
+        this.outboxRepository = outboxRepository;
+        this.sink = sink;
+        this.transactionTemplate = transactionTemplate;
+        this.relayedCounter = Counter.builder(RELAYED_COUNTER).description("Eventos del outbox enviados")
+                .register(meterRegistry);
+        this.failuresCounter = Counter.builder(FAILURES_COUNTER).description("Lotes del outbox que fallaron")
+                .register(meterRegistry);
+        this.batchSize = Math.max(batchSize, 1);
+    }
+
+    @Scheduled(fixedDelayString = "${library.outbox.poll-ms:1000}")
+    public void run() {
+        relay();
+    }
+
+    // Envía lotes hasta vaciar el outbox o hasta que uno falle; devuelve cuántos eventos envió
+    public long relay() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        long relayed = 0;
+        try {
+            int sent;
+            do {
+                sent = transactionTemplate.execute(status -> relayBatch());
+                relayedCounter.increment(sent);
+                relayed += sent;
+            } while (sent == batchSize);
+        } catch (RuntimeException e) {
+            failuresCounter.increment();
+            logger.warn("No se pudo enviar un lote del outbox; se reintentará en la siguiente ejecución", e);
+        } finally {
+            running.set(false);
+        }
+        return relayed;
+    }
+
+    private int relayBatch() {
+        List<OutboxEvent> batch = outboxRepository.findBatch(PageRequest.ofSize(batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            sink.publish(batch);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        outboxRepository.deleteByIds(batch.stream().map(OutboxEvent::getId).toList());
+        return batch.size();
+    }
+}
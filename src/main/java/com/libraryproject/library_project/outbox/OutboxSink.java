@@ -0,0 +1,17 @@
+package com.libraryproject.library_project.outbox;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.libraryproject.library_project.entities.OutboxEvent;
+
+/*
+ * Destino de los eventos del outbox (archivo, memoria o un bus de mensajes). Si
+ * publish termina sin error el lote se borra del outbox; si falla, se vuelve a
+ * enviar completo en el siguiente intento, así que un destino puede recibir un
+ * evento más de una vez y debe descartar los ids repetidos.
+ */
+public interface OutboxSink {
+
+    void publish(List<OutboxEvent> events) throws IOException;
+}
@@ -0,0 +1,99 @@
+package com.libraryproject.library_project.outbox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryproject.library_project.dto.CatalogChangeDTO;
+import com.libraryproject.library_project.entities.OutboxEvent;
+import com.libraryproject.library_project.events.BookChangedEvent;
+import com.libraryproject.library_project.events.LoanChangedEvent;
+import com.libraryproject.library_project.events.LoanOverdueEvent;
+import com.libraryproject.library_project.repositories.OutboxRepository;
+
+import jakarta.persistence.EntityManager;
+
+/*
+ * Guarda en outbox_events los cambios de libros y préstamos, y los préstamos
+ * vencidos, dentro de la misma
+ * transacción que los produjo: si la transacción se deshace, el evento tampoco
+ * existe. Los eventos se juntan durante la transacción y se insertan en un solo
+ * lote justo antes del commit, sin consultas adicionales.
+ *
+ * El agregado de todos los eventos es el libro. Cada cambio de un libro
+ * (UPDATE condicional, save o borrado) bloquea su fila antes de que se inserte
+ * el evento, así que dos transacciones sobre el mismo libro obtienen ids del
+ * outbox en el mismo orden en que confirman.
+ */
+@Component
+@ConditionalOnProperty(name = "library.outbox.enabled", havingValue = "true")
+public class OutboxWriter {
+
+    public static final String BOOK = "book";
+
+    private final OutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+
+    public OutboxWriter(OutboxRepository outboxRepository, ObjectMapper objectMapper, EntityManager entityManager) {
+        this.outboxRepository = outboxRepository;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+    }
+
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) throws JsonProcessingException {
+        add(new OutboxEvent(BOOK, event.bookId(), "book-" + event.type().name().toLowerCase(Locale.ROOT),
+                objectMapper.writeValueAsString(CatalogChangeDTO.of(event))));
+    }
+
+    @EventListener
+    public void onLoanChanged(LoanChangedEvent event) throws JsonProcessingException {
+        add(new OutboxEvent(BOOK, event.bookId(), "loan-" + event.type().name().toLowerCase(Locale.ROOT),
+                objectMapper.writeValueAsString(event)));
+    }
+
+    // Se publica dentro de la transacción de la revisión, junto al bloque guardado
+    @EventListener
+    public void onLoanOverdue(LoanOverdueEvent event) throws JsonProcessingException {
+        add(new OutboxEvent(BOOK, event.bookId(), "loan-overdue", objectMapper.writeValueAsString(event)));
+    }
+
+    private void add(OutboxEvent event) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            outboxRepository.insertAll(List.of(event));
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<OutboxEvent> pending = (List<OutboxEvent>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<OutboxEvent> batch = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, batch);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    // Primero los cambios pendientes de Hibernate, para que los
+                    // libros queden bloqueados antes de insertar sus eventos
+                    entityManager.flush();
+                    outboxRepository.insertAll(batch);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(OutboxWriter.this);
+                }
+            });
+            pending = batch;
+        }
+        pending.add(event);
+    }
+}
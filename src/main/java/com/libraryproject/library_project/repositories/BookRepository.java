@@ -1,9 +1,91 @@
 package com.libraryproject.library_project.repositories;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
+import com.libraryproject.library_project.dto.BookSummaryDTO;
 import com.libraryproject.library_project.entities.Book;
 
-public interface BookRepository extends CrudRepository<Book, Long> {
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+public interface BookRepository extends CrudRepository<Book, Long>, JpaSpecificationExecutor<Book>,
+        BookRepositoryCustom {
     boolean existsByTitleAndAuthor(String title, String author);
+
+    // Título y autor de los libros con alguno de los títulos indicados, para
+    // descartar duplicados de una importación en una sola consulta
+    List<TitleAndAuthor> findByTitleIn(Collection<String> titles);
+
+    interface TitleAndAuthor {
+        String getTitle();
+
+        String getAuthor();
+    }
+
+    // Catálogo completo como DTO: sin entidades administradas ni fechas de auditoría.
+    // El resultado queda en la caché de consultas hasta el siguiente cambio en books.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT new com.libraryproject.library_project.dto.BookSummaryDTO("
+            + "b.id, b.title, b.author, b.genre, b.availability) FROM Book b ORDER BY b.id")
+    List<BookSummaryDTO> findAllSummaries();
+
+    // Paginación por cursor: libros con id mayor al último entregado
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT new com.libraryproject.library_project.dto.BookSummaryDTO("
+            + "b.id, b.title, b.author, b.genre, b.availability) FROM Book b WHERE b.id > :afterId ORDER BY b.id")
+    List<BookSummaryDTO> findSummariesAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Varios libros como DTO, leídos de la base y no de la caché de segundo nivel
+    @Query("SELECT new com.libraryproject.library_project.dto.BookSummaryDTO("
+            + "b.id, b.title, b.author, b.genre, b.availability) FROM Book b WHERE b.id IN :ids")
+    List<BookSummaryDTO> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Recorre todo el catálogo sin cargarlo completo en memoria. Las entidades se
+    // cargan como solo lectura: Hibernate no guarda su estado para detectar cambios.
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+    @Query("SELECT b FROM Book b ORDER BY b.id")
+    Stream<Book> streamAll();
+
+    // Igual que streamAll, pero como DTO para transmitir el catálogo
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.libraryproject.library_project.dto.BookSummaryDTO("
+            + "b.id, b.title, b.author, b.genre, b.availability) FROM Book b ORDER BY b.id")
+    Stream<BookSummaryDTO> streamAllSummaries();
+
+    // Reserva el libro solo si sigue disponible; devuelve 0 si otro préstamo lo ganó.
+    // La condición se evalúa en la base, así que dos préstamos simultáneos no pueden
+    // tomar el mismo libro.
+    @Modifying
+    @Query("UPDATE Book b SET b.availability = false, b.updatedAt = :now WHERE b.id = :id AND b.availability = true")
+    int markUnavailable(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // Vuelve a dejar disponible un libro devuelto
+    @Modifying
+    @Query("UPDATE Book b SET b.availability = true, b.updatedAt = :now WHERE b.id = :id AND b.availability = false")
+    int markAvailable(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // Carga y bloquea varios libros en una sola consulta. El orden por id evita
+    // bloqueos cruzados entre préstamos múltiples simultáneos.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Book b WHERE b.id IN :ids ORDER BY b.id")
+    List<Book> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    // Marca como prestados todos los libros indicados que sigan disponibles
+    @Modifying
+    @Query("UPDATE Book b SET b.availability = false, b.updatedAt = :now WHERE b.id IN :ids AND b.availability = true")
+    int markAllUnavailable(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,21 @@
+package com.libraryproject.library_project.repositories;
+
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.libraryproject.library_project.dto.BookSummaryDTO;
+import com.libraryproject.library_project.entities.Book;
+
+public interface BookRepositoryCustom {
+
+    // Inserta los libros en un solo lote JDBC y asigna a cada uno su id generado
+    List<Book> insertAll(List<Book> books);
+
+    // Los primeros libros por id que cumplen la especificación, como DTO y sin
+    // contar el total como haría findAll(spec, Pageable)
+    List<BookSummaryDTO> findSummaries(Specification<Book> spec, int limit);
+
+    // Búsqueda por palabras en título y autor usando el índice FULLTEXT de MySQL
+    List<BookSummaryDTO> searchFullText(String terms, String genre, Boolean availability, int limit);
+}
@@ -0,0 +1,130 @@
+package com.libraryproject.library_project.repositories;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.libraryproject.library_project.dto.BookSummaryDTO;
+import com.libraryproject.library_project.entities.Book;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import lombok.RequiredArgsConstructor;
+
+// Igual que los préstamos: Book usa IDENTITY, así que el lote se arma con JDBC.
+// Hibernate no ve estos INSERT, así que se vacían a mano sus cachés de libros
+// y de consultas (los listados del catálogo)
+@RequiredArgsConstructor
+public class BookRepositoryImpl implements BookRepositoryCustom {
+
+    private static final String INSERT_BOOK = "INSERT INTO books "
+            + "(title, author, genre, availability, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String SEARCH_FULLTEXT = "SELECT id, title, author, genre, availability FROM books "
+            + "WHERE MATCH(title, author) AGAINST (? IN BOOLEAN MODE) "
+            + "AND (? IS NULL OR genre = ?) AND (? IS NULL OR availability = ?) ORDER BY id LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final EntityManager entityManager;
+
+    @Override
+    public List<Book> insertAll(List<Book> books) {
+        if (books.isEmpty()) {
+            return books;
+        }
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_BOOK, new String[] { "id" }),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Book book = books.get(i);
+                        ps.setString(1, book.getTitle());
+                        ps.setString(2, book.getAuthor());
+                        if (book.getGenre() == null) {
+                            ps.setNull(3, Types.VARCHAR);
+                        } else {
+                            ps.setString(3, book.getGenre());
+                        }
+                        ps.setBoolean(4, book.getAvailability());
+                        ps.setTimestamp(5, Timestamp.valueOf(book.getCreatedAt()));
+                        ps.setTimestamp(6, Timestamp.valueOf(book.getUpdatedAt()));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return books.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < books.size(); i++) {
+            Object id = keys.get(i).values().iterator().next();
+            books.get(i).setId(((Number) id).longValue());
+        }
+        evictCaches();
+        return books;
+    }
+
+    // SELECT de las columnas del DTO con LIMIT: sin entidades administradas ni
+    // la consulta COUNT de una página
+    @Override
+    public List<BookSummaryDTO> findSummaries(Specification<Book> spec, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BookSummaryDTO> query = cb.createQuery(BookSummaryDTO.class);
+        Root<Book> book = query.from(Book.class);
+        query.select(cb.construct(BookSummaryDTO.class, book.get("id"), book.get("title"), book.get("author"),
+                book.get("genre"), book.get("availability")));
+        Predicate predicate = spec == null ? null : spec.toPredicate(book, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(cb.asc(book.get("id")));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    // MATCH ... AGAINST no existe en JPQL; la consulta nativa se lee directo como DTO
+    @Override
+    public List<BookSummaryDTO> searchFullText(String terms, String genre, Boolean availability, int limit) {
+        return jdbcTemplate.query(SEARCH_FULLTEXT,
+                (rs, i) -> new BookSummaryDTO(rs.getLong("id"), rs.getString("title"), rs.getString("author"),
+                        rs.getString("genre"), rs.getBoolean("availability")),
+                terms, genre, genre, availability, availability, limit);
+    }
+
+    // De nuevo al terminar la transacción: una consulta de otra transacción pudo
+    // guardar el listado anterior mientras el lote no estaba confirmado
+    private void evictCaches() {
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        cache.evictEntityData(Book.class);
+        cache.evictQueryRegions();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evictEntityData(Book.class);
+                    cache.evictQueryRegions();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.libraryproject.library_project.repositories;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.libraryproject.library_project.entities.Book;
+
+// Filtros de búsqueda de libros; cada uno devuelve null si el criterio no se envió
+public final class BookSpecifications {
+
+    private BookSpecifications() {
+    }
+
+    // Prefijo: LIKE 'texto%' puede usar los índices de title y (author, title)
+    public static Specification<Book> titleStartsWith(String title) {
+        return isBlank(title) ? null : (root, query, cb) -> cb.like(root.get("title"), escape(title) + "%", '\\');
+    }
+
+    public static Specification<Book> authorStartsWith(String author) {
+        return isBlank(author) ? null : (root, query, cb) -> cb.like(root.get("author"), escape(author) + "%", '\\');
+    }
+
+    public static Specification<Book> titleContains(String title) {
+        return isBlank(title) ? null
+                : (root, query, cb) -> cb.like(root.get("title"), "%" + escape(title) + "%", '\\');
+    }
+
+    public static Specification<Book> authorContains(String author) {
+        return isBlank(author) ? null
+                : (root, query, cb) -> cb.like(root.get("author"), "%" + escape(author) + "%", '\\');
+    }
+
+    public static Specification<Book> hasGenre(String genre) {
+        return isBlank(genre) ? null : (root, query, cb) -> cb.equal(root.get("genre"), genre.trim());
+    }
+
+    public static Specification<Book> hasAvailability(Boolean availability) {
+        return availability == null ? null : (root, query, cb) -> cb.equal(root.get("availability"), availability);
+    }
+
+    private static boolean isBlank(String text) {
+        return text == null || text.isBlank();
+    }
+
+    // Evita que % y _ enviados por el cliente se interpreten como comodines
+    private static String escape(String text) {
+        return text.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -1,9 +1,87 @@
 package com.libraryproject.library_project.repositories;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
+import com.libraryproject.library_project.dto.LoanDTO;
+import com.libraryproject.library_project.dto.UserLoanDTO;
 import com.libraryproject.library_project.entities.Loan;
+import com.libraryproject.library_project.events.LoanOverdueEvent;
+
+import jakarta.persistence.QueryHint;
+
+public interface LoanRepository extends CrudRepository<Loan, Long>, LoanRepositoryCustom {
+
+    // Préstamos con los datos del usuario y del libro en una sola consulta
+    @Query("SELECT new com.libraryproject.library_project.dto.LoanDTO("
+            + "l.id, u.name, u.email, u.id, u.phone, u.address, b.id, l.loanDate, l.returnDate) "
+            + "FROM Loan l JOIN User u ON u.id = l.userId JOIN Book b ON b.id = l.bookId "
+            + "ORDER BY l.id")
+    List<LoanDTO> findAllLoanDetails();
+
+    // Paginación por cursor: préstamos con id mayor al último entregado
+    @Query("SELECT new com.libraryproject.library_project.dto.LoanDTO("
+            + "l.id, u.name, u.email, u.id, u.phone, u.address, b.id, l.loanDate, l.returnDate) "
+            + "FROM Loan l JOIN User u ON u.id = l.userId JOIN Book b ON b.id = l.bookId "
+            + "WHERE l.id > :afterId ORDER BY l.id")
+    List<LoanDTO> findLoanDetailsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Recorre todos los préstamos sin cargarlos completos en memoria
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.libraryproject.library_project.dto.LoanDTO("
+            + "l.id, u.name, u.email, u.id, u.phone, u.address, b.id, l.loanDate, l.returnDate) "
+            + "FROM Loan l JOIN User u ON u.id = l.userId JOIN Book b ON b.id = l.bookId "
+            + "ORDER BY l.id")
+    Stream<LoanDTO> streamAllLoanDetails();
+
+    // Historial de un usuario, del préstamo más reciente al más antiguo
+    @Query("SELECT new com.libraryproject.library_project.dto.UserLoanDTO("
+            + "l.id, b.id, b.title, b.author, l.loanDate, l.returnDate, l.returnedAt) "
+            + "FROM Loan l JOIN Book b ON b.id = l.bookId "
+            + "WHERE l.userId = :userId "
+            + "ORDER BY l.loanDate DESC, l.id DESC")
+    List<UserLoanDTO> findUserLoans(@Param("userId") Long userId, Pageable pageable);
+
+    // Siguiente página del historial: préstamos anteriores a (loanDate, id)
+    @Query("SELECT new com.libraryproject.library_project.dto.UserLoanDTO("
+            + "l.id, b.id, b.title, b.author, l.loanDate, l.returnDate, l.returnedAt) "
+            + "FROM Loan l JOIN Book b ON b.id = l.bookId "
+            + "WHERE l.userId = :userId "
+            + "AND (l.loanDate < :beforeDate OR (l.loanDate = :beforeDate AND l.id < :beforeId)) "
+            + "ORDER BY l.loanDate DESC, l.id DESC")
+    List<UserLoanDTO> findUserLoansBefore(@Param("userId") Long userId, @Param("beforeDate") LocalDate beforeDate,
+            @Param("beforeId") Long beforeId, Pageable pageable);
+
+    // Préstamos activos vencidos antes de "before", en orden de (returnDate, id) y a
+    // partir del último entregado. Recorre el índice (returned_at, return_date, id)
+    // sin OFFSET, así que cada bloque cuesta lo mismo sin importar cuántos van.
+    @Query("SELECT new com.libraryproject.library_project.events.LoanOverdueEvent("
+            + "l.id, l.bookId, l.userId, l.returnDate) "
+            + "FROM Loan l WHERE l.returnedAt IS NULL AND l.returnDate < :before "
+            + "AND (l.returnDate > :afterDate OR (l.returnDate = :afterDate AND l.id > :afterId)) "
+            + "ORDER BY l.returnDate, l.id")
+    List<LoanOverdueEvent> findOverdueAfter(@Param("before") LocalDate before,
+            @Param("afterDate") LocalDate afterDate, @Param("afterId") Long afterId, Pageable pageable);
+
+    // Indica si el libro tiene un préstamo sin devolver (índice book_id, returned_at)
+    boolean existsByBookIdAndReturnedAtIsNull(Long bookId);
 
-public interface LoanRepository extends CrudRepository<Loan, Long> {
+    // Cierra el préstamo activo del libro; devuelve 0 si el libro no estaba prestado.
+    // Como markUnavailable, la condición se evalúa en la base y dos devoluciones
+    // simultáneas no pueden cerrar el mismo préstamo.
+    @Modifying
+    @Query("UPDATE Loan l SET l.returnedAt = :now, l.updatedAt = :now "
+            + "WHERE l.bookId = :bookId AND l.returnedAt IS NULL")
+    int markReturned(@Param("bookId") Long bookId, @Param("now") LocalDateTime now);
 
 }
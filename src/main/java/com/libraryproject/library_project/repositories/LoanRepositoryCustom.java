@@ -0,0 +1,11 @@
+package com.libraryproject.library_project.repositories;
+
+import java.util.List;
+
+import com.libraryproject.library_project.entities.Loan;
+
+public interface LoanRepositoryCustom {
+
+    // Inserta los préstamos en un solo lote JDBC y asigna a cada uno su id generado
+    List<Loan> insertAll(List<Loan> loans);
+}
@@ -0,0 +1,71 @@
+package com.libraryproject.library_project.repositories;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import com.libraryproject.library_project.entities.Loan;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+
+/*
+ * Loan usa GenerationType.IDENTITY, con lo que Hibernate inserta fila por fila
+ * para leer cada id. Aquí se arma el lote directamente con JDBC y los ids se
+ * leen de getGeneratedKeys, así que N préstamos viajan en un solo lote.
+ */
+@RequiredArgsConstructor
+public class LoanRepositoryImpl implements LoanRepositoryCustom {
+
+    private static final String INSERT_LOAN = "INSERT INTO loans "
+            + "(book_id, user_id, loan_date, return_date, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    @Override
+    public List<Loan> insertAll(List<Loan> loans) {
+        if (loans.isEmpty()) {
+            return loans;
+        }
+
+        // El usuario pudo quedar pendiente en el contexto de Hibernate y los
+        // préstamos lo referencian
+        entityManager.flush();
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_LOAN, new String[] { "id" }),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Loan loan = loans.get(i);
+                        ps.setLong(1, loan.getBookId());
+                        ps.setLong(2, loan.getUserId());
+                        ps.setDate(3, Date.valueOf(loan.getLoanDate()));
+                        ps.setDate(4, Date.valueOf(loan.getReturnDate()));
+                        ps.setTimestamp(5, Timestamp.valueOf(loan.getCreatedAt()));
+                        ps.setTimestamp(6, Timestamp.valueOf(loan.getUpdatedAt()));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return loans.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < loans.size(); i++) {
+            Object id = keys.get(i).values().iterator().next();
+            loans.get(i).setId(((Number) id).longValue());
+        }
+        return loans;
+    }
+}
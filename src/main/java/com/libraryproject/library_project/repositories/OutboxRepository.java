@@ -0,0 +1,28 @@
+package com.libraryproject.library_project.repositories;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import com.libraryproject.library_project.entities.OutboxEvent;
+
+import jakarta.persistence.LockModeType;
+
+public interface OutboxRepository extends CrudRepository<OutboxEvent, Long>, OutboxRepositoryCustom {
+
+    // Eventos más antiguos primero. El bloqueo hace que si hay dos procesos de
+    // envío el segundo espere al primero en lugar de enviar el mismo lote
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM OutboxEvent e ORDER BY e.id")
+    List<OutboxEvent> findBatch(Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+}
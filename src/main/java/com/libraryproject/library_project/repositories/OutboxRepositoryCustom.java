@@ -0,0 +1,11 @@
+package com.libraryproject.library_project.repositories;
+
+import java.util.List;
+
+import com.libraryproject.library_project.entities.OutboxEvent;
+
+public interface OutboxRepositoryCustom {
+
+    // Inserta los eventos de una transacción en un solo lote JDBC
+    void insertAll(List<OutboxEvent> events);
+}
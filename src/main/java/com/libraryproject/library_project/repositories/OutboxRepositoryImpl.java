@@ -0,0 +1,38 @@
+package com.libraryproject.library_project.repositories;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.libraryproject.library_project.entities.OutboxEvent;
+
+import lombok.RequiredArgsConstructor;
+
+/*
+ * Igual que LoanRepositoryImpl: con GenerationType.IDENTITY Hibernate insertaría
+ * fila por fila, así que los eventos de una transacción se escriben en un solo
+ * lote JDBC. Los ids no se leen; el envío los obtiene al consultar.
+ */
+@RequiredArgsConstructor
+public class OutboxRepositoryImpl implements OutboxRepositoryCustom {
+
+    private static final String INSERT_EVENT = "INSERT INTO outbox_events "
+            + "(aggregate_type, aggregate_id, event_type, payload, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(List<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_EVENT, events, events.size(), (ps, event) -> {
+            ps.setString(1, event.getAggregateType());
+            ps.setLong(2, event.getAggregateId());
+            ps.setString(3, event.getEventType());
+            ps.setString(4, event.getPayload());
+            ps.setTimestamp(5, Timestamp.valueOf(event.getCreatedAt()));
+        });
+    }
+}
@@ -0,0 +1,8 @@
+package com.libraryproject.library_project.repositories;
+
+import org.springframework.data.repository.CrudRepository;
+
+import com.libraryproject.library_project.entities.OverdueLoan;
+
+public interface OverdueLoanRepository extends CrudRepository<OverdueLoan, Long>, OverdueLoanRepositoryCustom {
+}
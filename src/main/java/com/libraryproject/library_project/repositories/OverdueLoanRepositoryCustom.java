@@ -0,0 +1,12 @@
+package com.libraryproject.library_project.repositories;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.libraryproject.library_project.events.LoanOverdueEvent;
+
+public interface OverdueLoanRepositoryCustom {
+
+    // Guarda un bloque de préstamos vencidos en un solo lote JDBC
+    void insertAll(List<LoanOverdueEvent> overdue, LocalDateTime detectedAt);
+}
@@ -0,0 +1,41 @@
+package com.libraryproject.library_project.repositories;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.libraryproject.library_project.events.LoanOverdueEvent;
+
+import lombok.RequiredArgsConstructor;
+
+/*
+ * El id de OverdueLoan es el del préstamo, así que saveAll haría un SELECT por
+ * fila antes de cada INSERT. El bloque se escribe en un solo lote JDBC; el
+ * cursor de la revisión no repite préstamos, así que no hay filas existentes.
+ */
+@RequiredArgsConstructor
+public class OverdueLoanRepositoryImpl implements OverdueLoanRepositoryCustom {
+
+    private static final String INSERT_OVERDUE = "INSERT INTO overdue_loans "
+            + "(loan_id, book_id, user_id, return_date, detected_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(List<LoanOverdueEvent> overdue, LocalDateTime detectedAt) {
+        if (overdue.isEmpty()) {
+            return;
+        }
+        Timestamp detected = Timestamp.valueOf(detectedAt);
+        jdbcTemplate.batchUpdate(INSERT_OVERDUE, overdue, overdue.size(), (ps, loan) -> {
+            ps.setLong(1, loan.loanId());
+            ps.setLong(2, loan.bookId());
+            ps.setLong(3, loan.userId());
+            ps.setDate(4, Date.valueOf(loan.returnDate()));
+            ps.setTimestamp(5, detected);
+        });
+    }
+}
@@ -0,0 +1,363 @@
+package com.libraryproject.library_project.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.events.BookChangedEvent;
+import com.libraryproject.library_project.repositories.BookRepository;
+
+import jakarta.persistence.EntityManager;
+
+/*
+ * Índice invertido en memoria del catálogo. Cada palabra normalizada de título,
+ * autor y género apunta a los libros que la contienen con un peso por campo; un
+ * índice de trigramas sobre el vocabulario permite encontrar palabras con
+ * errores de tipeo o escritas a medias. Se construye al iniciar la aplicación y
+ * se mantiene al día con los BookChangedEvent, así que las búsquedas no llegan a
+ * la base de datos.
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    private static final int TITLE_WEIGHT = 3;
+    private static final int AUTHOR_WEIGHT = 2;
+    private static final int GENRE_WEIGHT = 1;
+
+    // Penalización de las palabras que coinciden por prefijo o con errores
+    private static final double PREFIX_FACTOR = 0.75;
+    private static final double FUZZY_FACTOR = 0.5;
+    private static final int MIN_PREFIX_LENGTH = 3;
+
+    private final BookRepository bookRepository;
+    private final EntityManager entityManager;
+    private final boolean rebuildOnStartup;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private IndexData data = new IndexData();
+    private volatile boolean ready = false;
+
+    // Cambios recibidos mientras se reconstruye, para aplicarlos al índice nuevo
+    private List<BookChangedEvent> pendingChanges = null;
+
+    public BookSearchIndex(BookRepository bookRepository, EntityManager entityManager,
+            @Value("${library.search.rebuild-on-startup:true}") boolean rebuildOnStartup) {
+        this.bookRepository = bookRepository;
+        this.entityManager = entityManager;
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void onApplicationReady() {
+        if (rebuildOnStartup) {
+            rebuild();
+        }
+    }
+
+    // Reconstruye el índice completo leyendo el catálogo fila por fila
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        IndexData rebuilt = new IndexData();
+        try (Stream<Book> books = bookRepository.streamAll()) {
+            Iterator<Book> iterator = books.iterator();
+            while (iterator.hasNext()) {
+                Book book = iterator.next();
+                rebuilt.add(book.copy());
+                entityManager.detach(book);
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            pendingChanges.forEach(change -> rebuilt.apply(change));
+            pendingChanges = null;
+            data = rebuilt;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Índice de búsqueda construido con {} libros en {} ms", rebuilt.documents.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            data.apply(event);
+            if (pendingChanges != null) {
+                pendingChanges.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(Book book) {
+        onBookChanged(BookChangedEvent.updated(book));
+    }
+
+    public void remove(Long bookId) {
+        onBookChanged(BookChangedEvent.deleted(bookId));
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return data.documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Devuelve los libros que contienen todas las palabras buscadas, ordenados por relevancia
+    public List<Book> search(String query, int limit) {
+        List<String> tokens = TextNormalizer.tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = null;
+            for (String token : tokens) {
+                Map<Long, Double> tokenScores = data.score(token);
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    scores = intersect(scores, tokenScores);
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+            return data.top(scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Conserva los libros presentes en ambos mapas sumando sus puntajes
+    private static Map<Long, Double> intersect(Map<Long, Double> left, Map<Long, Double> right) {
+        Map<Long, Double> smaller = left.size() <= right.size() ? left : right;
+        Map<Long, Double> larger = smaller == left ? right : left;
+        Map<Long, Double> result = new HashMap<>();
+        smaller.forEach((id, score) -> {
+            Double other = larger.get(id);
+            if (other != null) {
+                result.put(id, score + other);
+            }
+        });
+        return result;
+    }
+
+    // Estructuras del índice; solo se modifican con el candado de escritura tomado
+    private static final class IndexData {
+
+        private final Map<Long, Book> documents = new HashMap<>();
+        private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+        private final Map<String, Set<String>> trigramTerms = new HashMap<>();
+
+        void apply(BookChangedEvent event) {
+            if (event.type() == BookChangedEvent.ChangeType.DELETED) {
+                remove(event.bookId());
+            } else if (event.book() != null) {
+                add(event.book().copy());
+            }
+        }
+
+        void add(Book book) {
+            remove(book.getId());
+            documents.put(book.getId(), book);
+            termWeights(book).forEach((term, weight) -> postings.computeIfAbsent(term, newTerm -> {
+                for (String trigram : trigrams(newTerm)) {
+                    trigramTerms.computeIfAbsent(trigram, key -> new HashSet<>()).add(newTerm);
+                }
+                return new HashMap<>();
+            }).put(book.getId(), weight));
+        }
+
+        void remove(Long bookId) {
+            Book old = documents.remove(bookId);
+            if (old == null) {
+                return;
+            }
+            for (String term : termWeights(old).keySet()) {
+                Map<Long, Integer> posting = postings.get(term);
+                if (posting == null) {
+                    continue;
+                }
+                posting.remove(bookId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                    for (String trigram : trigrams(term)) {
+                        Set<String> terms = trigramTerms.get(trigram);
+                        if (terms != null && terms.remove(term) && terms.isEmpty()) {
+                            trigramTerms.remove(trigram);
+                        }
+                    }
+                }
+            }
+        }
+
+        // Puntaje de cada libro para una palabra: coincidencia exacta, por prefijo o
+        // con hasta maxEdits errores
+        Map<Long, Double> score(String token) {
+            Map<Long, Double> scores = new HashMap<>();
+            matchingTerms(token).forEach((term, factor) -> postings.get(term)
+                    .forEach((bookId, weight) -> scores.merge(bookId, weight * factor, Math::max)));
+            return scores;
+        }
+
+        Map<String, Double> matchingTerms(String token) {
+            Map<String, Double> matches = new HashMap<>();
+            if (postings.containsKey(token)) {
+                matches.put(token, 1.0);
+            }
+
+            // Lema de q-gramas: cada edición destruye como máximo 3 trigramas
+            List<String> grams = trigrams(token);
+            int maxEdits = maxEdits(token.length());
+            int threshold = Math.max(1, Math.min(grams.size() - 1, grams.size() - 3 * maxEdits));
+
+            Map<String, Integer> shared = new HashMap<>();
+            for (String gram : grams) {
+                Set<String> terms = trigramTerms.get(gram);
+                if (terms != null) {
+                    for (String term : terms) {
+                        shared.merge(term, 1, Integer::sum);
+                    }
+                }
+            }
+
+            shared.forEach((term, count) -> {
+                if (count < threshold || term.equals(token)) {
+                    return;
+                }
+                if (token.length() >= MIN_PREFIX_LENGTH && term.startsWith(token)) {
+                    matches.merge(term, PREFIX_FACTOR, Math::max);
+                    return;
+                }
+                int distance = editDistance(token, term, maxEdits);
+                if (distance > 0 && distance <= maxEdits) {
+                    matches.merge(term, FUZZY_FACTOR / distance, Math::max);
+                }
+            });
+            return matches;
+        }
+
+        // Los k mejores por puntaje (y por id ante empates) con un montículo acotado
+        List<Book> top(Map<Long, Double> scores, int limit) {
+            Comparator<Map.Entry<Long, Double>> ranking = Map.Entry.<Long, Double>comparingByValue()
+                    .thenComparing(Map.Entry.<Long, Double>comparingByKey().reversed());
+            PriorityQueue<Map.Entry<Long, Double>> heap = new PriorityQueue<>(ranking);
+            for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                heap.offer(entry);
+                if (heap.size() > limit) {
+                    heap.poll();
+                }
+            }
+
+            List<Book> result = new ArrayList<>(heap.size());
+            while (!heap.isEmpty()) {
+                result.add(documents.get(heap.poll().getKey()).copy());
+            }
+            return result.reversed();
+        }
+
+        private static Map<String, Integer> termWeights(Book book) {
+            Map<String, Integer> weights = new HashMap<>();
+            TextNormalizer.tokenize(book.getTitle()).forEach(term -> weights.merge(term, TITLE_WEIGHT, Integer::sum));
+            TextNormalizer.tokenize(book.getAuthor()).forEach(term -> weights.merge(term, AUTHOR_WEIGHT, Integer::sum));
+            TextNormalizer.tokenize(book.getGenre()).forEach(term -> weights.merge(term, GENRE_WEIGHT, Integer::sum));
+            return weights;
+        }
+    }
+
+    // Palabras cortas deben escribirse bien; las largas admiten más errores
+    static int maxEdits(int length) {
+        if (length <= 3) {
+            return 0;
+        }
+        return length <= 6 ? 1 : 2;
+    }
+
+    static List<String> trigrams(String term) {
+        String padded = "$" + term + "$";
+        List<String> grams = new ArrayList<>(padded.length() - 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    // Distancia de Levenshtein que se corta apenas supera max (devuelve max + 1)
+    static int editDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -1,97 +1,296 @@
 package com.libraryproject.library_project.services;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryproject.library_project.cache.CatalogCache;
+import com.libraryproject.library_project.config.MetricsConfig;
+import com.libraryproject.library_project.dto.BookImportResultDTO;
+import com.libraryproject.library_project.dto.BookSummaryDTO;
 import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.events.BookChangedEvent;
+import com.libraryproject.library_project.importer.BookImportFormat;
+import com.libraryproject.library_project.importer.BookImporter;
+import com.libraryproject.library_project.metrics.LibraryMetrics;
 import com.libraryproject.library_project.repositories.BookRepository;
+import com.libraryproject.library_project.repositories.BookSpecifications;
+import com.libraryproject.library_project.search.BookSearchIndex;
 import com.libraryproject.library_project.utils.ApiResponse;
+import com.libraryproject.library_project.utils.CursorPage;
+import com.libraryproject.library_project.utils.TextFormatter;
 
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 
 @Service
 @RequiredArgsConstructor
+@Timed(MetricsConfig.SERVICE_TIMER)
 public class BookService {
 
     private final BookRepository bookRepository;
+    private final CatalogCache catalogCache;
+    private final ObjectMapper objectMapper;
+    private final BookSearchIndex bookSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BookImporter bookImporter;
+    private final LibraryMetrics libraryMetrics;
     private static final Logger logger = LoggerFactory.getLogger(BookService.class);
 
-    public ResponseEntity<ApiResponse<Iterable<Book>>> listAllBooks() {
+    public static final int MAX_PAGE_SIZE = 500;
+
+    // InnoDB ignora en FULLTEXT las palabras más cortas que innodb_ft_min_token_size
+    private static final int MIN_FULLTEXT_WORD = 3;
+
+    // Los listados leen DTO: Hibernate no guarda copias para detectar cambios ni
+    // mantiene las entidades en memoria. No son de solo lectura a propósito: sus
+    // respuestas llevan el ETag de CatalogVersion, que aumenta al confirmarse el
+    // cambio en la base principal, y con réplica una lectura atrasada quedaría con
+    // el ETag nuevo y los clientes recibirían 304 con datos viejos. Igual que
+    // CatalogSnapshot, leen de la base principal.
+    @Transactional
+    public ResponseEntity<ApiResponse<List<BookSummaryDTO>>> listAllBooks() {
         try {
-            Iterable<Book> books = bookRepository.findAll();
+            List<BookSummaryDTO> books = bookRepository.findAllSummaries();
             return createApiResponse(HttpStatus.OK, "Los libros fueron consultados con éxito.", books);
         } catch (Exception e) {
-            e.printStackTrace();
+            logger.error("Error al consultar los libros", e);
+            return createApiResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Error al intentar consultar los libros.", null);
+        }
+    }
+
+    @Transactional
+    public ResponseEntity<ApiResponse<CursorPage<BookSummaryDTO>>> listBooksPage(String cursor, int size) {
+        try {
+            long afterId = CursorPage.parseIdCursor(cursor);
+            int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+            List<BookSummaryDTO> books = bookRepository.findSummariesAfter(afterId, PageRequest.ofSize(pageSize));
+            CursorPage<BookSummaryDTO> page = CursorPage.of(books, pageSize, BookSummaryDTO::getId);
+            return createApiResponse(HttpStatus.OK, "Los libros fueron consultados con éxito.", page);
+        } catch (NumberFormatException e) {
+            return createApiResponse(HttpStatus.BAD_REQUEST, "El cursor no es válido.", null);
+        } catch (Exception e) {
+            logger.error("Error al consultar la página de libros: {}", cursor, e);
             return createApiResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Error al intentar consultar los libros.", null);
         }
     }
 
+    // Escribe el catálogo como NDJSON (un libro por línea) leyendo fila por fila
+    @Transactional
+    public void writeAllBooks(OutputStream out) throws IOException {
+        // Los DTO no quedan en el contexto de persistencia, así que la memoria no crece
+        try (Stream<BookSummaryDTO> books = bookRepository.streamAllSummaries()) {
+            Iterator<BookSummaryDTO> iterator = books.iterator();
+            while (iterator.hasNext()) {
+                out.write(objectMapper.writeValueAsBytes(iterator.next()));
+                out.write('\n');
+            }
+        }
+        out.flush();
+    }
+
+    @Transactional
+    public ResponseEntity<ApiResponse<List<BookSummaryDTO>>> searchBooks(String title, String author, String genre,
+            Boolean availability, boolean contains, int size) {
+        if (isBlank(title) && isBlank(author) && isBlank(genre) && availability == null) {
+            return createApiResponse(HttpStatus.BAD_REQUEST, "Debe indicar al menos un criterio de búsqueda.", null);
+        }
+        try {
+            int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+            String terms = contains ? fullTextTerms(title, author) : "";
+
+            List<BookSummaryDTO> books;
+            if (!terms.isEmpty()) {
+                books = bookRepository.searchFullText(terms, isBlank(genre) ? null : genre.trim(), availability,
+                        pageSize);
+            } else {
+                Specification<Book> spec = Specification.where(BookSpecifications.hasGenre(genre))
+                        .and(BookSpecifications.hasAvailability(availability))
+                        .and(contains ? BookSpecifications.titleContains(title)
+                                : BookSpecifications.titleStartsWith(title))
+                        .and(contains ? BookSpecifications.authorContains(author)
+                                : BookSpecifications.authorStartsWith(author));
+                books = bookRepository.findSummaries(spec, pageSize);
+            }
+            return createApiResponse(HttpStatus.OK, "Los libros fueron consultados con éxito.", books);
+        } catch (Exception e) {
+            logger.error("Error al buscar libros: {} - {}", title, author, e);
+            return createApiResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Error al intentar buscar los libros.", null);
+        }
+    }
+
+    // Búsqueda con tolerancia a errores sobre el índice en memoria (no consulta la base)
+    public ResponseEntity<ApiResponse<List<BookSummaryDTO>>> quickSearch(String query, int limit) {
+        if (isBlank(query)) {
+            return createApiResponse(HttpStatus.BAD_REQUEST, "Debe indicar el texto a buscar.", null);
+        }
+        if (!bookSearchIndex.isReady()) {
+            return createApiResponse(HttpStatus.SERVICE_UNAVAILABLE, "El índice de búsqueda se está construyendo.",
+                    null);
+        }
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        List<BookSummaryDTO> books = bookSearchIndex.search(query, pageSize).stream().map(BookSummaryDTO::of)
+                .toList();
+        return createApiResponse(HttpStatus.OK, "Los libros fueron consultados con éxito.", books);
+    }
+
+    // Las altas, cambios y bajas son transaccionales para que el registro del
+    // outbox se guarde o se descarte junto con el libro
+    @Transactional
     public ResponseEntity<ApiResponse<Book>> addBook(Book newBook) {
         try {
 
             newBook.setId(null);
-            newBook.setTitle(capitalize(newBook.getTitle()));
-            newBook.setAuthor(capitalize(newBook.getAuthor()));
-            newBook.setGenre(capitalize(newBook.getGenre()));
+            newBook.setTitle(TextFormatter.capitalize(newBook.getTitle()));
+            newBook.setAuthor(TextFormatter.capitalize(newBook.getAuthor()));
+            newBook.setGenre(TextFormatter.capitalize(newBook.getGenre()));
 
             bookRepository.save(newBook);
+            eventPublisher.publishEvent(BookChangedEvent.created(newBook));
+            libraryMetrics.bookOutcome(LibraryMetrics.CREATED);
             return createApiResponse(HttpStatus.OK, "El libro fue agregado con éxito.", newBook);
 
         } catch (DataIntegrityViolationException e) {
+            markRollbackOnly();
             logger.warn("Intento de agregar un libro duplicado: {} - {}", newBook.getTitle(), newBook.getAuthor());
+            libraryMetrics.bookOutcome(LibraryMetrics.DUPLICATE);
             return createApiResponse(HttpStatus.BAD_REQUEST, "El libro ya existe en la biblioteca.", null);
         } catch (Exception e) {
+            markRollbackOnly();
             logger.error("Error al agregar el libro", e);
+            libraryMetrics.bookOutcome(LibraryMetrics.ERROR);
             return createApiResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Error al intentar agregar el libro.", null);
         }
     }
 
+    // Importa un catálogo en CSV o NDJSON y devuelve el resumen con los errores por fila
+    public ResponseEntity<ApiResponse<BookImportResultDTO>> importBooks(InputStream body, String contentType) {
+        try {
+            BookImportFormat format = BookImportFormat.fromContentType(contentType);
+            BookImportResultDTO result = bookImporter.importBooks(body, format, progress -> {
+            });
+            return createApiResponse(HttpStatus.OK, "Se importaron " + result.getImported() + " de "
+                    + result.getProcessed() + " libros.", result);
+        } catch (IllegalArgumentException e) {
+            return createApiResponse(HttpStatus.BAD_REQUEST, e.getMessage(), null);
+        } catch (Exception e) {
+            logger.error("Error al importar libros", e);
+            return createApiResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Error al intentar importar los libros.", null);
+        }
+    }
+
+    // Igual que importBooks, pero escribe una línea NDJSON con el avance después de
+    // cada lote y el resumen completo al final
+    public void writeImportProgress(InputStream body, String contentType, OutputStream out) throws IOException {
+        BookImportFormat format = BookImportFormat.fromContentType(contentType);
+        BookImportResultDTO result = bookImporter.importBooks(body, format, progress -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(progress));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.write(objectMapper.writeValueAsBytes(result));
+        out.write('\n');
+        out.flush();
+    }
+
+    @Transactional
     public ResponseEntity<ApiResponse<Book>> updateBook(Book updateBook) {
         try {
-            Book book = bookRepository.findById(updateBook.getId()).get();
+            Book book = catalogCache.findBook(updateBook.getId()).get();
 
             book.setTitle(updateBook.getTitle());
             book.setAuthor(updateBook.getAuthor());
             book.setGenre(updateBook.getGenre());
-            book.setAvailability(updateBook.getAvailability());
+            // La disponibilidad la cambian solo createLoan y returnBook junto con el
+            // préstamo activo; si no, un libro prestado quedaría disponible otra vez
 
-            bookRepository.save(book);
+            catalogCache.saveBook(book);
+            eventPublisher.publishEvent(BookChangedEvent.updated(book));
 
             return createApiResponse(HttpStatus.OK, "El libro fue actualizado con éxito.", book);
 
         } catch (NoSuchElementException e) {
             logger.warn("Intento de actualizar un libro inexistente: {}", updateBook.getId());
+            libraryMetrics.bookOutcome(LibraryMetrics.MISSING);
             return createApiResponse(HttpStatus.BAD_REQUEST, "El libro no existe.", null);
         } catch (Exception e) {
+            markRollbackOnly();
             logger.error("Error al actualizar el libro: {}", updateBook.getId(), e);
             return createApiResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Error al intentar actualizar el libro.", null);
         }
     }
 
+    @Transactional
     public ResponseEntity<ApiResponse<String>> deleteBook(Long bookId) {
         try {
-            bookRepository.deleteById(bookId);
+            catalogCache.deleteBook(bookId);
+            eventPublisher.publishEvent(BookChangedEvent.deleted(bookId));
             return createApiResponse(HttpStatus.OK, "El libro fue eliminado con éxito.", null);
         } catch (EmptyResultDataAccessException e) {
             logger.warn("Intento de eliminar un libro inexistente: {}", bookId);
+            libraryMetrics.bookOutcome(LibraryMetrics.MISSING);
             return createApiResponse(HttpStatus.BAD_REQUEST, "Error al eliminar, el libro no existe.", null);
         } catch (Exception e) {
+            markRollbackOnly();
             logger.error("Error al eliminar el libro: {}", bookId, e);
             return createApiResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Error al intentar eliminar el libro.", null);
         }
     }
 
-    // Formato para los datos que se guardan en la base
-    private String capitalize(String text) {
-        return text.substring(0, 1).toUpperCase() + text.substring(1).toLowerCase();
+    // Arma la consulta booleana de FULLTEXT: todas las palabras deben aparecer,
+    // aceptando prefijos ("+harr* +pott*")
+    String fullTextTerms(String title, String author) {
+        List<String> words = new ArrayList<>();
+        for (String text : new String[] { title, author }) {
+            if (isBlank(text)) {
+                continue;
+            }
+            for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+                if (word.length() >= MIN_FULLTEXT_WORD) {
+                    words.add("+" + word + "*");
+                }
+            }
+        }
+        return String.join(" ", words);
+    }
+
+    private boolean isBlank(String text) {
+        return text == null || text.isBlank();
+    }
+
+    // Deshace la transacción sin lanzar la excepción, para responder con ApiResponse
+    private void markRollbackOnly() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        }
     }
 
     // Metodo para crear una respuesta con formato generalizado
@@ -1,58 +1,93 @@
 package com.libraryproject.library_project.services;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryproject.library_project.cache.CatalogCache;
+import com.libraryproject.library_project.config.MetricsConfig;
+import com.libraryproject.library_project.dto.BulkLoanDTO;
 import com.libraryproject.library_project.dto.LoanDTO;
+import com.libraryproject.library_project.dto.LoanResultDTO;
+import com.libraryproject.library_project.dto.UserLoanDTO;
 import com.libraryproject.library_project.entities.Book;
 import com.libraryproject.library_project.entities.Loan;
 import com.libraryproject.library_project.entities.User;
+import com.libraryproject.library_project.events.BookChangedEvent;
+import com.libraryproject.library_project.events.LoanChangedEvent;
+import com.libraryproject.library_project.metrics.LibraryMetrics;
 import com.libraryproject.library_project.repositories.BookRepository;
 import com.libraryproject.library_project.repositories.LoanRepository;
-import com.libraryproject.library_project.repositories.UserRepository;
 import com.libraryproject.library_project.utils.ApiResponse;
+import com.libraryproject.library_project.utils.CursorPage;
 
-import jakarta.transaction.Transactional;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
+@Timed(MetricsConfig.SERVICE_TIMER)
 public class LoanService {
 
-    private final UserRepository userRepository;
     private final BookRepository bookRepository;
     private final LoanRepository loanRepository;
+    private final CatalogCache catalogCache;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LibraryMetrics libraryMetrics;
+    private static final Logger logger = LoggerFactory.getLogger(LoanService.class);
+
+    public static final int MAX_PAGE_SIZE = 500;
+    public static final int MAX_BULK_LOANS = 100;
 
     @Transactional
     public ResponseEntity<ApiResponse<Book>> createLoan(LoanDTO loanDTO) {
         try {
             // Buscar libro
-            Book book = bookRepository.findById(loanDTO.getBookId()).get();
+            Book book = catalogCache.findBook(loanDTO.getBookId()).get();
 
             // Verificar disponibilidad del libro
             if (!book.getAvailability()) {
+                libraryMetrics.loanOutcome(LibraryMetrics.UNAVAILABLE);
                 return createApiResponse(HttpStatus.BAD_REQUEST, "El libro no esta disponible", null);
             }
 
-            // Buscar usuario o crearlo si no existe
-            User user = userRepository.findById(loanDTO.getUserId()).orElse(null);
-
-            if (user == null) {
-                user = new User();
-                user.setName(loanDTO.getUserName());
-                user.setId(loanDTO.getUserId());
-                user.setEmail(loanDTO.getUserEmail());
-                user.setPhone(loanDTO.getUserPhone());
-                user.setAddress(loanDTO.getUserAddress());
-                user = userRepository.save(user);
+            // Marcar el libro como no disponible solo si nadie lo prestó mientras tanto
+            if (bookRepository.markUnavailable(book.getId(), LocalDateTime.now()) == 0) {
+                libraryMetrics.loanOutcome(LibraryMetrics.UNAVAILABLE);
+                return createApiResponse(HttpStatus.BAD_REQUEST, "El libro no esta disponible", null);
             }
+            catalogCache.evictBook(book.getId());
+            book.setAvailability(false);
+
+            // Buscar usuario o crearlo si no existe
+            User user = findOrCreateUser(loanDTO.getUserId(), loanDTO.getUserName(), loanDTO.getUserEmail(),
+                    loanDTO.getUserPhone(), loanDTO.getUserAddress());
 
             // Crear préstamo
             Loan loan = new Loan();
@@ -61,61 +96,248 @@ public class LoanService {
             loan.setLoanDate(loanDTO.getLoanDate());
             loan.setReturnDate(loanDTO.getReturnDate());
 
-            // Marcar el libro como no disponible
-            book.setAvailability(false);
-
-            // Guardar préstamo y actualizar libro
+            // Guardar préstamo
             loanRepository.save(loan);
-            bookRepository.save(book);
+            eventPublisher.publishEvent(BookChangedEvent.updated(book));
+            eventPublisher.publishEvent(LoanChangedEvent.created(loan));
+            libraryMetrics.loanOutcome(LibraryMetrics.CREATED);
 
             return createApiResponse(HttpStatus.OK, "Préstamo registrado exitosamente", null);
         } catch (NoSuchElementException e) {
+            libraryMetrics.loanOutcome(LibraryMetrics.MISSING);
             return createApiResponse(HttpStatus.BAD_REQUEST, "El libro no existe", null);
         } catch (Exception e) {
+            // Deshacer la reserva del libro si el préstamo no se pudo registrar
+            markRollbackOnly();
+            logger.error("Error al registrar el préstamo del libro: {}", loanDTO.getBookId(), e);
+            libraryMetrics.loanOutcome(LibraryMetrics.ERROR);
             return createApiResponse(HttpStatus.BAD_REQUEST, e.getMessage(), null);
         }
     }
 
-    // Cambiar el tipo de retorno a ResponseEntity<ApiResponse<List<LoanDTO>>>
-    public ResponseEntity<ApiResponse<List<LoanDTO>>> listLoans() {
+    // Registra la devolución de un libro: cierra su préstamo activo y lo deja
+    // disponible otra vez en la misma transacción
+    @Transactional
+    public ResponseEntity<ApiResponse<Book>> returnBook(Long bookId) {
         try {
-            List<Loan> loanList = StreamSupport.stream(loanRepository.findAll().spliterator(), false)
-                    .collect(Collectors.toList());
+            Book book = catalogCache.findBook(bookId).get();
+            LocalDateTime now = LocalDateTime.now();
 
-            // Verificamos si la lista de préstamos está vacía
-            if (loanList.isEmpty()) {
-                return createApiResponse(HttpStatus.NO_CONTENT, "No hay préstamos disponibles.", null);
+            // Cerrar el préstamo solo si sigue activo
+            if (loanRepository.markReturned(bookId, now) == 0) {
+                libraryMetrics.loanOutcome(LibraryMetrics.NOT_LOANED);
+                return createApiResponse(HttpStatus.BAD_REQUEST, "El libro no está prestado", null);
+            }
+
+            bookRepository.markAvailable(bookId, now);
+            catalogCache.evictBook(bookId);
+            book.setAvailability(true);
+            eventPublisher.publishEvent(BookChangedEvent.updated(book));
+            eventPublisher.publishEvent(LoanChangedEvent.returned(bookId, now));
+            libraryMetrics.loanOutcome(LibraryMetrics.RETURNED);
+
+            return createApiResponse(HttpStatus.OK, "Devolución registrada exitosamente", null);
+        } catch (NoSuchElementException e) {
+            libraryMetrics.loanOutcome(LibraryMetrics.MISSING);
+            return createApiResponse(HttpStatus.BAD_REQUEST, "El libro no existe", null);
+        } catch (Exception e) {
+            markRollbackOnly();
+            logger.error("Error al registrar la devolución del libro: {}", bookId, e);
+            libraryMetrics.loanOutcome(LibraryMetrics.ERROR);
+            return createApiResponse(HttpStatus.BAD_REQUEST, e.getMessage(), null);
+        }
+    }
+
+    // Presta varios libros a un mismo usuario en una sola transacción: los libros
+    // se cargan y bloquean juntos, se reservan con un solo UPDATE y los
+    // préstamos se insertan en un lote. Cada libro informa su propio resultado.
+    @Transactional
+    public ResponseEntity<ApiResponse<List<LoanResultDTO>>> createLoans(BulkLoanDTO bulkLoanDTO) {
+        List<Long> requested = bulkLoanDTO.getBookIds();
+        if (requested == null || requested.isEmpty()) {
+            return createApiResponse(HttpStatus.BAD_REQUEST, "Debe indicar al menos un libro.", null);
+        }
+        if (requested.size() > MAX_BULK_LOANS) {
+            return createApiResponse(HttpStatus.BAD_REQUEST,
+                    "No se pueden prestar más de " + MAX_BULK_LOANS + " libros a la vez.", null);
+        }
+
+        try {
+            Set<Long> bookIds = new LinkedHashSet<>();
+            for (Long bookId : requested) {
+                if (bookId != null) {
+                    bookIds.add(bookId);
+                }
+            }
+            Map<Long, Book> books = new HashMap<>();
+            if (!bookIds.isEmpty()) {
+                for (Book book : bookRepository.findAllByIdForUpdate(bookIds)) {
+                    books.put(book.getId(), book.copy());
+                }
             }
 
-            List<LoanDTO> loans = new ArrayList<>();
-
-            // Si hay préstamos, los procesamos
-            for (Loan loan : loanList) {
-                User user = userRepository.findById(loan.getUserId()).orElse(null);
-                Book book = bookRepository.findById(loan.getBookId()).orElse(null);
-
-                if (user != null && book != null) {
-                    LoanDTO loanDTO = new LoanDTO();
-                    loanDTO.setLoanId(loan.getId());
-                    loanDTO.setUserName(user.getName());
-                    loanDTO.setUserEmail(user.getEmail());
-                    loanDTO.setUserId(user.getId());
-                    loanDTO.setUserPhone(user.getPhone());
-                    loanDTO.setUserAddress(user.getAddress());
-                    loanDTO.setBookId(book.getId());
-                    loanDTO.setLoanDate(loan.getLoanDate());
-                    loanDTO.setReturnDate(loan.getReturnDate());
-                    loans.add(loanDTO);
+            // Resultado por cada posición de la solicitud, en el mismo orden
+            LoanResultDTO[] results = new LoanResultDTO[requested.size()];
+            Map<Long, Integer> positions = new LinkedHashMap<>();
+            for (int i = 0; i < requested.size(); i++) {
+                Long bookId = requested.get(i);
+                Book book = bookId == null ? null : books.get(bookId);
+                if (book == null) {
+                    results[i] = LoanResultDTO.rejected(bookId, "El libro no existe");
+                    libraryMetrics.loanOutcome(LibraryMetrics.MISSING);
+                } else if (positions.containsKey(bookId)) {
+                    results[i] = LoanResultDTO.rejected(bookId, "El libro está repetido en la solicitud");
+                    libraryMetrics.loanOutcome(LibraryMetrics.DUPLICATE);
+                } else if (!book.getAvailability()) {
+                    results[i] = LoanResultDTO.rejected(bookId, "El libro no esta disponible");
+                    libraryMetrics.loanOutcome(LibraryMetrics.UNAVAILABLE);
+                } else {
+                    positions.put(bookId, i);
                 }
             }
 
+            if (!positions.isEmpty()) {
+                // Los libros ya están bloqueados, así que ninguno puede cambiar antes del UPDATE
+                bookRepository.markAllUnavailable(positions.keySet(), LocalDateTime.now());
+                User user = findOrCreateUser(bulkLoanDTO.getUserId(), bulkLoanDTO.getUserName(),
+                        bulkLoanDTO.getUserEmail(), bulkLoanDTO.getUserPhone(), bulkLoanDTO.getUserAddress());
+
+                List<Loan> loans = new ArrayList<>(positions.size());
+                for (Long bookId : positions.keySet()) {
+                    Loan loan = new Loan();
+                    loan.setUserId(user.getId());
+                    loan.setBookId(bookId);
+                    loan.setLoanDate(bulkLoanDTO.getLoanDate());
+                    loan.setReturnDate(bulkLoanDTO.getReturnDate());
+                    loans.add(loan);
+                }
+                loanRepository.insertAll(loans);
+
+                for (Loan loan : loans) {
+                    Book book = books.get(loan.getBookId());
+                    book.setAvailability(false);
+                    catalogCache.evictBook(book.getId());
+                    eventPublisher.publishEvent(BookChangedEvent.updated(book));
+                    eventPublisher.publishEvent(LoanChangedEvent.created(loan));
+                    results[positions.get(book.getId())] = LoanResultDTO.loaned(book.getId(), loan.getId());
+                    libraryMetrics.loanOutcome(LibraryMetrics.CREATED);
+                }
+            }
+
+            String message = "Se registraron " + positions.size() + " de " + requested.size() + " préstamos.";
+            HttpStatus status = positions.isEmpty() ? HttpStatus.BAD_REQUEST : HttpStatus.OK;
+            return createApiResponse(status, message, Arrays.asList(results));
+        } catch (Exception e) {
+            // Deshacer las reservas si los préstamos no se pudieron registrar
+            markRollbackOnly();
+            logger.error("Error al registrar el préstamo múltiple: {}", requested, e);
+            libraryMetrics.loanOutcome(LibraryMetrics.ERROR);
+            return createApiResponse(HttpStatus.BAD_REQUEST, e.getMessage(), null);
+        }
+    }
+
+    // Los listados proyectan a DTO dentro de transacciones de solo lectura
+    @Transactional(readOnly = true)
+    public ResponseEntity<ApiResponse<List<LoanDTO>>> listLoans() {
+        try {
+            // Una sola consulta que une préstamos, usuarios y libros
+            List<LoanDTO> loans = loanRepository.findAllLoanDetails();
+
+            // Verificamos si la lista de préstamos está vacía
+            if (loans.isEmpty()) {
+                return createApiResponse(HttpStatus.NO_CONTENT, "No hay préstamos disponibles.", null);
+            }
+
             return createApiResponse(HttpStatus.OK, "Los préstamos fueron consultados con éxito.", loans);
         } catch (Exception e) {
+            logger.error("Error al consultar los préstamos", e);
             return createApiResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Error al intentar consultar los préstamos.",
                     null);
         }
     }
 
+    @Transactional(readOnly = true)
+    public ResponseEntity<ApiResponse<CursorPage<LoanDTO>>> listLoansPage(String cursor, int size) {
+        try {
+            long afterId = CursorPage.parseIdCursor(cursor);
+            int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+            List<LoanDTO> loans = loanRepository.findLoanDetailsAfter(afterId, PageRequest.ofSize(pageSize));
+            CursorPage<LoanDTO> page = CursorPage.of(loans, pageSize, LoanDTO::getLoanId);
+            return createApiResponse(HttpStatus.OK, "Los préstamos fueron consultados con éxito.", page);
+        } catch (NumberFormatException e) {
+            return createApiResponse(HttpStatus.BAD_REQUEST, "El cursor no es válido.", null);
+        } catch (Exception e) {
+            logger.error("Error al consultar la página de préstamos: {}", cursor, e);
+            return createApiResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Error al intentar consultar los préstamos.",
+                    null);
+        }
+    }
+
+    // Historial de préstamos de un usuario por páginas, del más reciente al más
+    // antiguo. El cursor es la fecha y el id del último préstamo entregado.
+    @Transactional(readOnly = true)
+    public ResponseEntity<ApiResponse<CursorPage<UserLoanDTO>>> listUserLoans(Long userId, String cursor, int size) {
+        try {
+            int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+            PageRequest page = PageRequest.ofSize(pageSize);
+
+            List<UserLoanDTO> loans;
+            if (cursor == null || cursor.isBlank()) {
+                loans = loanRepository.findUserLoans(userId, page);
+            } else {
+                int separator = cursor.lastIndexOf(':');
+                LocalDate beforeDate = LocalDate.parse(cursor.substring(0, Math.max(separator, 0)).trim());
+                long beforeId = Long.parseLong(cursor.substring(separator + 1).trim());
+                loans = loanRepository.findUserLoansBefore(userId, beforeDate, beforeId, page);
+            }
+
+            CursorPage<UserLoanDTO> result = CursorPage.of(loans, pageSize, UserLoanDTO::cursor);
+            return createApiResponse(HttpStatus.OK, "Los préstamos del usuario fueron consultados con éxito.", result);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return createApiResponse(HttpStatus.BAD_REQUEST, "El cursor no es válido.", null);
+        } catch (Exception e) {
+            logger.error("Error al consultar los préstamos del usuario: {}", userId, e);
+            return createApiResponse(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Error al intentar consultar los préstamos del usuario.", null);
+        }
+    }
+
+    // Escribe los préstamos como NDJSON (uno por línea) leyendo fila por fila
+    @Transactional(readOnly = true)
+    public void writeAllLoans(OutputStream out) throws IOException {
+        try (Stream<LoanDTO> loans = loanRepository.streamAllLoanDetails()) {
+            Iterator<LoanDTO> iterator = loans.iterator();
+            while (iterator.hasNext()) {
+                out.write(objectMapper.writeValueAsBytes(iterator.next()));
+                out.write('\n');
+            }
+        }
+        out.flush();
+    }
+
+    private User findOrCreateUser(Long userId, String name, String email, String phone, String address) {
+        User user = catalogCache.findUser(userId).orElse(null);
+
+        if (user == null) {
+            user = new User();
+            user.setName(name);
+            user.setId(userId);
+            user.setEmail(email);
+            user.setPhone(phone);
+            user.setAddress(address);
+            user = catalogCache.saveUser(user);
+        }
+        return user;
+    }
+
+    // La respuesta de error no es una excepción, así que hay que pedir el rollback
+    private void markRollbackOnly() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        }
+    }
+
     // Metodo para crear una respuesta con formato generalizado
     private <T> ResponseEntity<ApiResponse<T>> createApiResponse(HttpStatus status, String message, T data) {
         ApiResponse<T> response = new ApiResponse<>(message, data);
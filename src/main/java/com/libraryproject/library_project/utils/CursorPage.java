@@ -0,0 +1,33 @@
+package com.libraryproject.library_project.utils;
+
+import java.util.List;
+import java.util.function.Function;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Página de resultados con el cursor para pedir la siguiente (null si no hay más)
+@Data
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private List<T> items;
+    private String nextCursor;
+
+    // Arma la página; si vino completa, el cursor es la clave del último elemento
+    public static <T> CursorPage<T> of(List<T> items, int size, Function<T, Object> cursorOf) {
+        String nextCursor = null;
+        if (!items.isEmpty() && items.size() == size) {
+            nextCursor = String.valueOf(cursorOf.apply(items.get(items.size() - 1)));
+        }
+        return new CursorPage<>(items, nextCursor);
+    }
+
+    // Convierte un cursor basado en id; sin cursor se empieza desde el inicio
+    public static long parseIdCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        return Long.parseLong(cursor.trim());
+    }
+}
@@ -0,0 +1,52 @@
+package com.libraryproject.library_project.utils;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
+
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+/*
+ * Campos a elegir (sparse fieldsets): con ?fields=id,title los DTO marcados con
+ * @SparseFieldset se escriben solo con esos campos. El resto de la respuesta
+ * (mensaje, cursor, fecha) no cambia. Ver JacksonConfig.
+ */
+public final class SparseFields {
+
+    public static final String FILTER_ID = "sparseFieldset";
+
+    // Sin ?fields= se escriben todos los campos
+    public static final FilterProvider ALL_FIELDS = new SimpleFilterProvider()
+            .setDefaultFilter(SimpleBeanPropertyFilter.serializeAll());
+
+    private SparseFields() {
+    }
+
+    // Envuelve el cuerpo de la respuesta para que se escriban solo los campos pedidos
+    public static ResponseEntity<?> select(ResponseEntity<?> response, String fields) {
+        Set<String> names = parse(fields);
+        if (names.isEmpty() || response.getBody() == null) {
+            return response;
+        }
+        MappingJacksonValue body = new MappingJacksonValue(response.getBody());
+        body.setFilters(filters(names));
+        return ResponseEntity.status(response.getStatusCode()).headers(response.getHeaders()).body(body);
+    }
+
+    public static FilterProvider filters(Set<String> names) {
+        return new SimpleFilterProvider().addFilter(FILTER_ID, SimpleBeanPropertyFilter.filterOutAllExcept(names));
+    }
+
+    static Set<String> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return Set.of();
+        }
+        return Arrays.stream(fields.split(",")).map(String::trim).filter(name -> !name.isEmpty())
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,12 @@
+package com.libraryproject.library_project.utils;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Marca los DTO de listados cuyos campos puede elegir el cliente con ?fields=
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SparseFieldset {
+}
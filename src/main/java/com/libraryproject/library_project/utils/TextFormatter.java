@@ -0,0 +1,12 @@
+package com.libraryproject.library_project.utils;
+
+public final class TextFormatter {
+
+    private TextFormatter() {
+    }
+
+    // Formato para los datos que se guardan en la base
+    public static String capitalize(String text) {
+        return text.substring(0, 1).toUpperCase() + text.substring(1).toLowerCase();
+    }
+}
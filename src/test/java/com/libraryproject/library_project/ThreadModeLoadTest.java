@@ -0,0 +1,182 @@
+package com.libraryproject.library_project;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.repositories.BookRepository;
+
+import jakarta.servlet.Filter;
+
+/*
+ * Compara el servidor con hilos del sistema y con hilos virtuales bajo la misma
+ * carga: muchas peticiones simultáneas a /api/book/listBooksPage, cada una con
+ * una espera fija que simula una dependencia lenta (otra base, un servicio
+ * externo). Informa latencias p50/p99 y el máximo de peticiones atendidas a la
+ * vez. Solo corre con -Dbenchmarks=true.
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+public class ThreadModeLoadTest {
+
+    private static final int REQUESTS = 4_000;
+    private static final int CLIENT_CONCURRENCY = 1_000;
+    private static final long SLOW_CALL_MILLIS = 50;
+
+    @Test
+    void comparePlatformAndVirtualThreads() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        System.out.printf("%-10s %10s %10s %10s %14s%n", "Modo", "p50 (ms)", "p99 (ms)", "máx (ms)",
+                "concurrencia");
+        System.out.println(platform);
+        System.out.println(virtual);
+
+        assertEquals(0, platform.errors());
+        assertEquals(0, virtual.errors());
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(LibraryProjectApplication.class,
+                SlowDependency.class).properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "server.tomcat.threads.max=200",
+                        "server.tomcat.max-connections=" + (CLIENT_CONCURRENCY * 2),
+                        "server.tomcat.accept-count=" + CLIENT_CONCURRENCY,
+                        "spring.datasource.url=jdbc:h2:mem:load-" + virtualThreads + ";DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.datasource.hikari.maximum-pool-size=20",
+                        "library.search.rebuild-on-startup=false")
+                .run()) {
+            seedBooks(context.getBean(BookRepository.class));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            AtomicInteger maxInFlight = context.getBean(SlowDependency.class).maxInFlight;
+            return load(virtualThreads ? "virtual" : "sistema", port, maxInFlight);
+        }
+    }
+
+    private Result load(String mode, int port, AtomicInteger maxInFlight) throws Exception {
+        URI uri = URI.create("http://localhost:" + port + "/api/book/listBooksPage?size=20");
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).GET().build();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+                HttpClient client = HttpClient.newBuilder().executor(clients).build()) {
+            // Calentamiento para que la JIT y el pool de conexiones no sesguen la medición
+            send(client, request, 200, clients);
+            maxInFlight.set(0);
+
+            long[] latencies = new long[REQUESTS];
+            AtomicInteger errors = new AtomicInteger();
+            Semaphore limit = new Semaphore(CLIENT_CONCURRENCY);
+            List<Future<?>> futures = new ArrayList<>(REQUESTS);
+            for (int i = 0; i < REQUESTS; i++) {
+                int index = i;
+                limit.acquire();
+                futures.add(clients.submit(() -> {
+                    try {
+                        long start = System.nanoTime();
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        latencies[index] = System.nanoTime() - start;
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (IOException | InterruptedException e) {
+                        errors.incrementAndGet();
+                    } finally {
+                        limit.release();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            Arrays.sort(latencies);
+            return new Result(mode, percentile(latencies, 0.50), percentile(latencies, 0.99),
+                    latencies[latencies.length - 1] / 1_000_000.0, maxInFlight.get(), errors.get());
+        }
+    }
+
+    private static void send(HttpClient client, HttpRequest request, int count, ExecutorService executor)
+            throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            futures.add(executor.submit(() -> client.send(request, HttpResponse.BodyHandlers.discarding())));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    private static void seedBooks(BookRepository bookRepository) {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Book book = new Book();
+            book.setTitle("Libro " + i);
+            book.setAuthor("Autor");
+            book.setGenre("Novela");
+            books.add(book);
+        }
+        bookRepository.saveAll(books);
+    }
+
+    record Result(String mode, double p50, double p99, double max, int maxInFlight, int errors) {
+        @Override
+        public String toString() {
+            return String.format("%-10s %10.1f %10.1f %10.1f %14d", mode, p50, p99, max, maxInFlight);
+        }
+    }
+
+    // Filtro que simula una dependencia bloqueante y mide cuántas peticiones hay a la vez
+    @TestConfiguration
+    static class SlowDependency {
+
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        @Bean
+        FilterRegistrationBean<Filter> slowDependencyFilter() {
+            Filter filter = (request, response, chain) -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(SLOW_CALL_MILLIS);
+                    chain.doFilter(request, response);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            };
+            return new FilterRegistrationBean<>(filter);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.libraryproject.library_project.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.entities.User;
+import com.libraryproject.library_project.repositories.BookRepository;
+import com.libraryproject.library_project.repositories.UserRepository;
+
+public class CatalogCacheTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private CatalogCache catalogCache;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        catalogCache = new CatalogCache(bookRepository, userRepository, 2, Duration.ofMinutes(5), nanos::get,
+                Runnable::run);
+
+        book = book(1L, "Rayuela", true);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        when(bookRepository.save(any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /*
+     * Probar que la segunda lectura del mismo libro no consulta la base.
+     */
+    @Test
+    void testFindBookReadsThrough() {
+        assertEquals("Rayuela", catalogCache.findBook(1L).get().getTitle());
+        assertEquals("Rayuela", catalogCache.findBook(1L).get().getTitle());
+
+        verify(bookRepository, times(1)).findById(1L);
+        assertEquals(1L, catalogCache.stats().get("books").get("hitCount"));
+        assertEquals(1L, catalogCache.stats().get("books").get("missCount"));
+    }
+
+    /*
+     * Probar que modificar el libro devuelto no altera la copia cacheada.
+     */
+    @Test
+    void testFindBookReturnsCopies() {
+        catalogCache.findBook(1L).get().setAvailability(false);
+
+        assertTrue(catalogCache.findBook(1L).get().getAvailability());
+    }
+
+    /*
+     * Probar que después de guardar un libro la siguiente lectura trae el valor
+     * nuevo.
+     */
+    @Test
+    void testSaveBookInvalidates() {
+        catalogCache.findBook(1L);
+
+        Book updated = book(1L, "Rayuela", false);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(updated));
+        catalogCache.saveBook(updated);
+
+        assertFalse(catalogCache.findBook(1L).get().getAvailability());
+        verify(bookRepository, times(2)).findById(1L);
+    }
+
+    /*
+     * Probar que un valor leído antes del commit se descarta al terminar la
+     * transacción.
+     */
+    @Test
+    void testSaveBookInvalidatesAgainAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        Book updated = book(1L, "Rayuela", false);
+        catalogCache.saveBook(updated);
+
+        // Otra petición lee antes del commit y cachea el valor anterior
+        assertTrue(catalogCache.findBook(1L).get().getAvailability());
+
+        // Commit de la transacción
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(updated));
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+
+        assertFalse(catalogCache.findBook(1L).get().getAvailability());
+    }
+
+    /*
+     * Probar que eliminar un libro lo saca de la caché.
+     */
+    @Test
+    void testDeleteBookInvalidates() {
+        catalogCache.findBook(1L);
+        when(bookRepository.findById(1L)).thenReturn(Optional.empty());
+
+        catalogCache.deleteBook(1L);
+
+        assertTrue(catalogCache.findBook(1L).isEmpty());
+        verify(bookRepository).deleteById(1L);
+    }
+
+    /*
+     * Probar que no se cachean los libros inexistentes.
+     */
+    @Test
+    void testMissingBookIsNotCached() {
+        when(bookRepository.findById(2L)).thenReturn(Optional.empty());
+        assertTrue(catalogCache.findBook(2L).isEmpty());
+
+        when(bookRepository.findById(2L)).thenReturn(Optional.of(book(2L, "Ficciones", true)));
+        assertTrue(catalogCache.findBook(2L).isPresent());
+    }
+
+    /*
+     * Probar la expulsión por tamaño y por tiempo.
+     */
+    @Test
+    void testEvictsBySizeAndTtl() {
+        when(bookRepository.findById(2L)).thenReturn(Optional.of(book(2L, "Ficciones", true)));
+        when(bookRepository.findById(3L)).thenReturn(Optional.of(book(3L, "Aleph", true)));
+        catalogCache.findBook(1L);
+        catalogCache.findBook(2L);
+        catalogCache.findBook(3L);
+        catalogCache.bookCache().cleanUp();
+        assertTrue(catalogCache.bookCache().estimatedSize() <= 2);
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(6));
+        catalogCache.bookCache().cleanUp();
+        assertEquals(0, catalogCache.bookCache().estimatedSize());
+        assertTrue((long) catalogCache.stats().get("books").get("evictionCount") >= 1);
+    }
+
+    /*
+     * Probar que guardar un usuario invalida su entrada.
+     */
+    @Test
+    void testSaveUserInvalidates() {
+        User user = new User();
+        user.setId(5L);
+        user.setName("Ana");
+        when(userRepository.findById(5L)).thenReturn(Optional.of(user));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        catalogCache.findUser(5L);
+
+        User renamed = user.copy();
+        renamed.setName("Ana maría");
+        when(userRepository.findById(5L)).thenReturn(Optional.of(renamed));
+        catalogCache.saveUser(renamed);
+
+        assertEquals("Ana maría", catalogCache.findUser(5L).get().getName());
+    }
+
+    private Book book(Long id, String title, boolean availability) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor("Autor");
+        book.setAvailability(availability);
+        return book;
+    }
+}
@@ -0,0 +1,201 @@
+package com.libraryproject.library_project.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryproject.library_project.dto.LoanDTO;
+import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.entities.User;
+import com.libraryproject.library_project.events.BookChangedEvent;
+import com.libraryproject.library_project.repositories.BookRepository;
+import com.libraryproject.library_project.repositories.LoanRepository;
+import com.libraryproject.library_project.repositories.UserRepository;
+import com.libraryproject.library_project.services.BookService;
+import com.libraryproject.library_project.services.LoanService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Catálogo preparado de listAllBooks sobre una base H2 real.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:catalog-snapshot;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop" })
+public class CatalogSnapshotTest {
+
+    private static final long USER_ID = 1L;
+
+    @Autowired
+    private CatalogSnapshot catalogSnapshot;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+        if (!userRepository.existsById(USER_ID)) {
+            User user = new User();
+            user.setId(USER_ID);
+            user.setName("Usuario");
+            user.setEmail("usuario@example.com");
+            userRepository.save(user);
+        }
+        catalogSnapshot.invalidate();
+    }
+
+    /*
+     * Probar que el catálogo preparado tiene el mismo contenido que
+     * listAllBooks, fuera del heap, y que la versión comprimida es el mismo JSON.
+     */
+    @Test
+    void testSnapshotMatchesListAllBooks() throws IOException {
+        bookService.addBook(book("Rayuela"));
+        bookService.addBook(book("Ficciones"));
+
+        CatalogSnapshot.Snapshot snapshot = catalogSnapshot.current();
+
+        assertTrue(snapshot.json().isDirect());
+        assertTrue(snapshot.json().isReadOnly());
+        // Se compara el JSON leído de nuevo: valueToTree deja los id como Long
+        JsonNode expected = objectMapper.readTree(objectMapper.writeValueAsBytes(bookService.listAllBooks().getBody()));
+        JsonNode actual = objectMapper.readTree(bytes(snapshot.json()));
+        assertEquals(expected.get("message"), actual.get("message"));
+        assertEquals(expected.get("data"), actual.get("data"));
+        assertTrue(actual.hasNonNull("timestamp"));
+
+        byte[] unzipped = new GZIPInputStream(new ByteArrayInputStream(bytes(snapshot.gzip()))).readAllBytes();
+        assertArrayEquals(bytes(snapshot.json()), unzipped);
+    }
+
+    /*
+     * Probar que altas, préstamos, devoluciones y bajas actualizan el catálogo,
+     * y que se arma de nuevo una sola vez por cambio aunque se lea varias veces.
+     */
+    @Test
+    void testSnapshotFollowsChanges() throws IOException {
+        Long bookId = bookRepository.save(book("El Aleph")).getId();
+        assertEquals(List.of("El Aleph"), titles());
+
+        double rebuilds = meterRegistry.counter(CatalogSnapshot.REBUILDS_COUNTER).count();
+        bookService.addBook(book("Pedro páramo"));
+        assertEquals(List.of("El Aleph", "Pedro páramo"), titles());
+        assertEquals(List.of("El Aleph", "Pedro páramo"), titles());
+        assertEquals(1, meterRegistry.counter(CatalogSnapshot.REBUILDS_COUNTER).count() - rebuilds);
+
+        loanService.createLoan(loanFor(bookId));
+        assertFalse(data().get(0).get("availability").asBoolean());
+        loanService.returnBook(bookId);
+        assertTrue(data().get(0).get("availability").asBoolean());
+
+        bookService.deleteBook(bookId);
+        assertEquals(List.of("Pedro páramo"), titles());
+    }
+
+    /*
+     * Probar que un cambio solo marca el libro y que el catálogo se relee de la
+     * base al armarse, aunque el evento traiga un valor anterior.
+     */
+    @Test
+    void testChangesAreReadBackWhenRebuilt() throws IOException {
+        Book stored = bookRepository.save(book("Rayuela"));
+        assertEquals(List.of("Rayuela"), titles());
+        Book stale = stored.copy();
+
+        stored.setTitle("Rayuela, edición revisada");
+        bookRepository.save(stored);
+        double rebuilds = meterRegistry.counter(CatalogSnapshot.REBUILDS_COUNTER).count();
+        catalogSnapshot.onBookChanged(BookChangedEvent.updated(stale));
+        assertEquals(0, meterRegistry.counter(CatalogSnapshot.REBUILDS_COUNTER).count() - rebuilds);
+
+        assertEquals(List.of("Rayuela, edición revisada"), titles());
+        assertEquals(1, meterRegistry.counter(CatalogSnapshot.REBUILDS_COUNTER).count() - rebuilds);
+    }
+
+    /*
+     * Probar que se envía comprimido a quien acepta gzip y que con ?fields= se
+     * responde como siempre.
+     */
+    @Test
+    void testRespondNegotiatesEncodingAndFallsBack() {
+        bookService.addBook(book("Rayuela"));
+        ResponseEntity<?> fallback = ResponseEntity.status(HttpStatus.OK).body("fallback");
+
+        ResponseEntity<?> gzip = catalogSnapshot.respond(null, null, "gzip, deflate", () -> fallback);
+        assertEquals("gzip", gzip.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertSame(catalogSnapshot.current().gzip(), gzip.getBody());
+
+        ResponseEntity<?> plain = catalogSnapshot.respond(null, "application/json", "gzip;q=0", () -> fallback);
+        assertNull(plain.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertSame(catalogSnapshot.current().json(), plain.getBody());
+
+        assertSame(fallback, catalogSnapshot.respond("id,title", null, "gzip", () -> fallback));
+    }
+
+    private List<String> titles() throws IOException {
+        return data().findValuesAsText("title");
+    }
+
+    private JsonNode data() throws IOException {
+        return objectMapper.readTree(bytes(catalogSnapshot.current().json())).get("data");
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        ByteBuffer view = buffer.duplicate();
+        byte[] bytes = new byte[view.remaining()];
+        view.get(bytes);
+        return bytes;
+    }
+
+    private static Book book(String title) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Autor de prueba");
+        book.setGenre("Novela");
+        return book;
+    }
+
+    private LoanDTO loanFor(Long bookId) {
+        LoanDTO loanDTO = new LoanDTO();
+        loanDTO.setBookId(bookId);
+        loanDTO.setUserId(USER_ID);
+        loanDTO.setLoanDate(LocalDate.now());
+        loanDTO.setReturnDate(LocalDate.now().plusDays(15));
+        return loanDTO;
+    }
+}
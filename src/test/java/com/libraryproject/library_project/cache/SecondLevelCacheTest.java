@@ -0,0 +1,160 @@
+package com.libraryproject.library_project.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.libraryproject.library_project.config.HibernateCacheConfig;
+import com.libraryproject.library_project.dto.LoanDTO;
+import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.entities.User;
+import com.libraryproject.library_project.repositories.BookRepository;
+import com.libraryproject.library_project.repositories.LoanRepository;
+import com.libraryproject.library_project.repositories.UserRepository;
+import com.libraryproject.library_project.services.BookService;
+import com.libraryproject.library_project.services.LoanService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/*
+ * Caché de segundo nivel y de consultas de Hibernate sobre una base H2 real.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:second-level-cache;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop" })
+public class SecondLevelCacheTest {
+
+    private static final long USER_ID = 1L;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private HibernateCacheStats hibernateCacheStats;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+        if (!userRepository.existsById(USER_ID)) {
+            User user = new User();
+            user.setId(USER_ID);
+            user.setName("Usuario");
+            user.setEmail("usuario@example.com");
+            userRepository.save(user);
+        }
+        entityManagerFactory.getCache().evictAll();
+        entityManagerFactory.unwrap(SessionFactory.class).getStatistics().clear();
+    }
+
+    /*
+     * Probar que la segunda lectura de un libro por id sale de la caché de
+     * segundo nivel y que las estadísticas de la región lo muestran.
+     */
+    @Test
+    void testFindByIdHitsSecondLevelCache() {
+        Long bookId = bookRepository.save(book("Rayuela")).getId();
+        entityManagerFactory.getCache().evictAll();
+
+        bookRepository.findById(bookId);
+        bookRepository.findById(bookId);
+
+        Map<String, Object> books = hibernateCacheStats.regions().get(HibernateCacheConfig.BOOKS_REGION);
+        assertEquals(1L, books.get("missCount"));
+        assertEquals(1L, books.get("hitCount"));
+        assertEquals(0.5, books.get("hitRate"));
+    }
+
+    /*
+     * Probar que un préstamo y su devolución, que cambian la disponibilidad con
+     * UPDATE condicionales, nunca dejan una copia vieja en la caché.
+     */
+    @Test
+    void testAvailabilityFlipIsNeverStale() {
+        Long bookId = bookRepository.save(book("Ficciones")).getId();
+        assertTrue(bookRepository.findById(bookId).get().getAvailability());
+
+        loanService.createLoan(loanFor(bookId));
+        assertFalse(bookRepository.findById(bookId).get().getAvailability());
+
+        loanService.returnBook(bookId);
+        assertTrue(bookRepository.findById(bookId).get().getAvailability());
+    }
+
+    /*
+     * Probar que el listado del catálogo sale de la caché de consultas hasta que
+     * cambia un libro.
+     */
+    @Test
+    void testCatalogListingUsesQueryCache() {
+        bookRepository.save(book("El Aleph"));
+
+        assertEquals(1, bookService.listAllBooks().getBody().getData().size());
+        assertEquals(1, bookService.listAllBooks().getBody().getData().size());
+        assertEquals(1L, hibernateCacheStats.regions().get("queries").get("hitCount"));
+
+        bookService.addBook(book("Pedro Páramo"));
+        assertEquals(2, bookService.listAllBooks().getBody().getData().size());
+        assertEquals(1L, hibernateCacheStats.regions().get("queries").get("hitCount"));
+    }
+
+    /*
+     * Probar que los libros guardados con el lote JDBC de la importación, que
+     * Hibernate no ve, aparecen en el listado ya guardado en la caché de consultas.
+     */
+    @Test
+    void testBatchInsertEvictsQueryCache() {
+        bookRepository.save(book("El Aleph"));
+        assertEquals(1, bookService.listAllBooks().getBody().getData().size());
+
+        List<Book> books = new ArrayList<>(List.of(book("Pedro Páramo"), book("Rayuela")));
+        transactionTemplate.executeWithoutResult(status -> bookRepository.insertAll(books));
+
+        assertEquals(3, bookService.listAllBooks().getBody().getData().size());
+    }
+
+    private static Book book(String title) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Autor de prueba");
+        book.setGenre("Novela");
+        return book;
+    }
+
+    private LoanDTO loanFor(Long bookId) {
+        LoanDTO loanDTO = new LoanDTO();
+        loanDTO.setBookId(bookId);
+        loanDTO.setUserId(USER_ID);
+        loanDTO.setLoanDate(LocalDate.now());
+        loanDTO.setReturnDate(LocalDate.now().plusDays(15));
+        return loanDTO;
+    }
+}
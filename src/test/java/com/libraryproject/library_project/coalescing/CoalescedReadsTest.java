@@ -0,0 +1,144 @@
+package com.libraryproject.library_project.coalescing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.libraryproject.library_project.cache.CatalogVersion;
+import com.libraryproject.library_project.config.JacksonConfig;
+import com.libraryproject.library_project.dto.BookSummaryDTO;
+import com.libraryproject.library_project.utils.ApiResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CoalescedReadsTest {
+
+    private static final int REQUESTS = 16;
+
+    private CatalogVersion catalogVersion;
+    private SimpleMeterRegistry registry;
+    private CoalescedReads coalescedReads;
+    private AtomicInteger queries;
+    private CountDownLatch started;
+    private CountDownLatch release;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        catalogVersion = new CatalogVersion(Duration.ofSeconds(5));
+        registry = new SimpleMeterRegistry();
+        coalescedReads = new CoalescedReads(catalogVersion, Jackson2ObjectMapperBuilder.json().build(), registry);
+        queries = new AtomicInteger();
+        started = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        executor = Executors.newFixedThreadPool(REQUESTS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /*
+     * Probar que muchas peticiones simultáneas del mismo listado hacen una sola
+     * consulta y reciben el mismo JSON, escrito una sola vez.
+     */
+    @Test
+    void testConcurrentReadsShareOneQuery() throws Exception {
+        List<Future<SharedResponse>> responses = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            responses.add(executor.submit(() -> coalescedReads.share("listAllBooks", this::slowQuery)));
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // Da tiempo a que las demás peticiones lleguen mientras la consulta sigue en curso
+        Thread.sleep(200);
+        release.countDown();
+
+        byte[] json = responses.get(0).get(5, TimeUnit.SECONDS).json();
+        for (Future<SharedResponse> response : responses) {
+            assertSame(json, response.get(5, TimeUnit.SECONDS).json());
+        }
+        assertEquals(1, queries.get());
+        assertTrue(new String(json).contains("\"title\":\"Rayuela\""));
+        assertEquals(REQUESTS - 1,
+                registry.counter(CoalescedReads.REQUESTS_COUNTER, "listing", "listAllBooks", "shared", "true").count());
+    }
+
+    /*
+     * Probar que una petición que llega después de un cambio del catálogo no se
+     * une a la consulta empezada antes, y que al terminar no queda nada guardado.
+     */
+    @Test
+    void testCatalogChangeStartsNewQuery() throws Exception {
+        Future<SharedResponse> before = executor.submit(() -> coalescedReads.share("listAllBooks", this::slowQuery));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        catalogVersion.bump();
+        SharedResponse after = coalescedReads.share("listAllBooks", this::query);
+        assertEquals(2, queries.get());
+
+        release.countDown();
+        before.get(5, TimeUnit.SECONDS);
+        coalescedReads.share("listAllBooks", this::query);
+        assertEquals(3, queries.get());
+        assertNotNull(after.json());
+    }
+
+    /*
+     * Probar que el JSON compartido se envía solo a quien pide JSON sin
+     * ?fields=, y que Smile sigue pasando por la negociación de Spring.
+     */
+    @Test
+    void testSelectUsesPreSerializedJsonOnlyForPlainJson() {
+        SharedResponse shared = coalescedReads.share("listAllBooks", this::query);
+
+        assertSame(shared.json(), shared.select(null, null).getBody());
+        assertSame(shared.json(), shared.select(null, "application/json").getBody());
+        assertEquals(MediaType.APPLICATION_JSON, shared.select(null, "*/*").getHeaders().getContentType());
+        assertSame(shared.response(), shared.select(null, JacksonConfig.SMILE.toString()));
+        assertNotSame(shared.json(), shared.select("id,title", null).getBody());
+
+        SharedResponse empty = coalescedReads.share("listLoans",
+                () -> ResponseEntity.status(HttpStatus.NO_CONTENT).body(new ApiResponse<>("Sin préstamos", null)));
+        assertNull(empty.json());
+        assertEquals(HttpStatus.NO_CONTENT, empty.select(null, null).getStatusCode());
+    }
+
+    // Se cuenta al empezar, no al terminar: la consulta sigue en curso mientras se verifica
+    private ResponseEntity<?> slowQuery() {
+        queries.incrementAndGet();
+        started.countDown();
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return books();
+    }
+
+    private ResponseEntity<?> query() {
+        queries.incrementAndGet();
+        return books();
+    }
+
+    private static ResponseEntity<?> books() {
+        BookSummaryDTO book = new BookSummaryDTO(1L, "Rayuela", "Julio Cortázar", "Novela", true);
+        return ResponseEntity.ok(new ApiResponse<>("Los libros fueron consultados con éxito.", List.of(book)));
+    }
+}
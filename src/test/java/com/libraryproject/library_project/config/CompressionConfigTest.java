@@ -0,0 +1,45 @@
+package com.libraryproject.library_project.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.util.unit.DataSize;
+
+public class CompressionConfigTest {
+
+    /*
+     * Probar que sin server.compression se activa gzip para JSON y Smile a partir
+     * del tamaño mínimo configurado.
+     */
+    @Test
+    void testEnablesCompressionByDefault() {
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory();
+
+        new CompressionConfig().compressionCustomizer(new ServerProperties(), DataSize.ofKilobytes(2))
+                .customize(factory);
+
+        assertTrue(factory.getCompression().getEnabled());
+        assertEquals(DataSize.ofKilobytes(2), factory.getCompression().getMinResponseSize());
+        assertTrue(List.of(factory.getCompression().getMimeTypes()).contains("application/x-jackson-smile"));
+    }
+
+    /*
+     * Probar que si se configuró server.compression no se reemplaza.
+     */
+    @Test
+    void testKeepsServerCompression() {
+        ServerProperties serverProperties = new ServerProperties();
+        serverProperties.getCompression().setEnabled(true);
+        serverProperties.getCompression().setMinResponseSize(DataSize.ofKilobytes(8));
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory();
+        factory.setCompression(serverProperties.getCompression());
+
+        new CompressionConfig().compressionCustomizer(serverProperties, DataSize.ofKilobytes(2)).customize(factory);
+
+        assertEquals(DataSize.ofKilobytes(8), factory.getCompression().getMinResponseSize());
+    }
+}
@@ -0,0 +1,99 @@
+package com.libraryproject.library_project.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+public class VirtualThreadPinningMonitorTest {
+
+    private final VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor(Duration.ZERO);
+
+    @AfterEach
+    void tearDown() {
+        monitor.stop();
+    }
+
+    /*
+     * Probar que el monitor detecta un hilo virtual que espera dentro de un bloque
+     * synchronized. Desde Java 24 synchronized ya no fija el hilo portador.
+     */
+    @Test
+    void testDetectsPinnedThread() throws Exception {
+        assumeTrue(Runtime.version().feature() < 24);
+        monitor.start();
+
+        Object lock = new Object();
+        Thread thread = Thread.ofVirtual().start(() -> {
+            synchronized (lock) {
+                sleep(50);
+            }
+        });
+        thread.join();
+        monitor.stop();
+
+        assertTrue(monitor.pinnedCount() >= 1);
+        assertTrue(monitor.pinnedBySource().keySet().stream()
+                .anyMatch(source -> source.startsWith(VirtualThreadPinningMonitorTest.class.getName())));
+    }
+
+    /*
+     * Probar que pedir conexiones a Hikari desde muchos hilos virtuales, con menos
+     * conexiones que hilos, no fija los hilos portadores dentro del pool.
+     */
+    @Test
+    void testHikariPoolDoesNotPin() throws Exception {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:pinning;DB_CLOSE_DELAY=-1");
+        config.setMaximumPoolSize(2);
+        config.setConnectionTimeout(30_000);
+
+        monitor.start();
+        try (HikariDataSource dataSource = new HikariDataSource(config);
+                ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                futures.add(executor.submit(() -> {
+                    try (Connection connection = dataSource.getConnection();
+                            Statement statement = connection.createStatement();
+                            ResultSet resultSet = statement.executeQuery("SELECT 1")) {
+                        resultSet.next();
+                        // Retener la conexión para que los demás hilos esperen en el pool
+                        sleep(2);
+                        return resultSet.getInt(1);
+                    }
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                assertEquals(1, future.get());
+            }
+        }
+        monitor.stop();
+
+        assertTrue(monitor.pinnedBySource().keySet().stream()
+                .noneMatch(source -> source.startsWith("com.zaxxer.hikari")),
+                "Bloqueos dentro de Hikari: " + monitor.pinnedBySource());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,28 +1,49 @@
 package com.libraryproject.library_project.controllers;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryproject.library_project.cache.CatalogSnapshot;
+import com.libraryproject.library_project.cache.CatalogVersion;
+import com.libraryproject.library_project.coalescing.CoalescedReads;
+import com.libraryproject.library_project.config.JacksonConfig;
+import com.libraryproject.library_project.dto.BookImportResultDTO;
+import com.libraryproject.library_project.dto.BookSummaryDTO;
 import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.idempotency.IdempotentRequests;
+import com.libraryproject.library_project.idempotency.InMemoryIdempotencyStore;
 import com.libraryproject.library_project.repositories.BookRepository;
 import com.libraryproject.library_project.services.BookService;
 import com.libraryproject.library_project.utils.ApiResponse;
+import com.libraryproject.library_project.utils.CursorPage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -37,6 +58,20 @@ public class BookControllerTest {
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private CatalogSnapshot catalogSnapshot;
+
+    @Spy
+    private CatalogVersion catalogVersion = new CatalogVersion(Duration.ofSeconds(5));
+
+    @Spy
+    private IdempotentRequests idempotentRequests = new IdempotentRequests(
+            new InMemoryIdempotencyStore(100, Duration.ofHours(1)), new SimpleMeterRegistry(), Duration.ofSeconds(5));
+
+    @Spy
+    private CoalescedReads coalescedReads = new CoalescedReads(catalogVersion,
+            Jackson2ObjectMapperBuilder.json().build(), new SimpleMeterRegistry());
+
     @InjectMocks
     private BookController bookController;
 
@@ -47,6 +82,10 @@ public class BookControllerTest {
         // Setup MockMvc
         mockMvc = MockMvcBuilders.standaloneSetup(bookController).build();
 
+        // Sin catálogo preparado: listAllBooks consulta el servicio
+        when(catalogSnapshot.respond(any(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<ResponseEntity<?>>>getArgument(3).get());
+
         // Setup Book
         book = new Book();
         book.setId(1L);
@@ -99,21 +138,19 @@ public class BookControllerTest {
     @Test
     public void testListAllBooks() throws Exception {
         // Arrange: Create a mock list of books
-        Book book1 = new Book();
-        book1.setTitle("Title 1");
-        book1.setAuthor("Author 1");
-        book1.setGenre("Genre 1");
+        BookSummaryDTO book1 = new BookSummaryDTO(1L, "Title 1", "Author 1", "Genre 1", true);
 
-        Iterable<Book> mockBooks = Arrays.asList(book1);
+        List<BookSummaryDTO> mockBooks = Arrays.asList(book1);
 
         // Simulamos la respuesta del servicio con
-        // ResponseEntity<ApiResponse<Iterable<Book>>>
-        ApiResponse<Iterable<Book>> apiResponse = new ApiResponse<>("Los libros fueron consultados con éxito.",
+        // ResponseEntity<ApiResponse<List<BookSummaryDTO>>>
+        ApiResponse<List<BookSummaryDTO>> apiResponse = new ApiResponse<>("Los libros fueron consultados con éxito.",
                 mockBooks);
-        ResponseEntity<ApiResponse<Iterable<Book>>> responseEntity = new ResponseEntity<>(apiResponse, HttpStatus.OK);
+        ResponseEntity<ApiResponse<List<BookSummaryDTO>>> responseEntity = new ResponseEntity<>(apiResponse,
+                HttpStatus.OK);
 
         // Simulamos que el servicio devuelve un
-        // ResponseEntity<ApiResponse<Iterable<Book>>>
+        // ResponseEntity<ApiResponse<List<BookSummaryDTO>>>
         when(bookService.listAllBooks()).thenReturn(responseEntity);
 
         // Realizamos la petición GET
@@ -174,4 +211,129 @@ public class BookControllerTest {
 
     }
 
+    @Test
+    void testListBooksPage() throws Exception {
+        // Simulamos una página completa con cursor hacia el siguiente libro
+        BookSummaryDTO summary = new BookSummaryDTO(book.getId(), book.getTitle(), book.getAuthor(),
+                book.getGenre(), book.getAvailability());
+        CursorPage<BookSummaryDTO> page = new CursorPage<>(List.of(summary), "1");
+        ApiResponse<CursorPage<BookSummaryDTO>> apiResponse = new ApiResponse<>(
+                "Los libros fueron consultados con éxito.", page);
+        ResponseEntity<ApiResponse<CursorPage<BookSummaryDTO>>> responseEntity = new ResponseEntity<>(apiResponse,
+                HttpStatus.OK);
+
+        when(bookService.listBooksPage(null, 1)).thenReturn(responseEntity);
+
+        // Realizamos la petición GET
+        mockMvc.perform(get("/api/book/listBooksPage").param("size", "1"))
+                .andExpect(status().isOk()) // Validamos el código de estado
+                .andExpect(jsonPath("$.data.items[0].title").value("Test Book")) // Validamos el libro
+                .andExpect(jsonPath("$.data.nextCursor").value("1")); // Validamos el cursor
+
+        // Verificamos que se haya llamado al servicio
+        verify(bookService, times(1)).listBooksPage(null, 1);
+    }
+
+    @Test
+    void testImportBooks() throws Exception {
+        // Simulamos el resumen de una importación
+        BookImportResultDTO result = new BookImportResultDTO();
+        result.setProcessed(1);
+        result.setImported(1);
+        ApiResponse<BookImportResultDTO> apiResponse = new ApiResponse<>("Se importaron 1 de 1 libros.", result);
+        ResponseEntity<ApiResponse<BookImportResultDTO>> responseEntity = new ResponseEntity<>(apiResponse,
+                HttpStatus.OK);
+
+        when(bookService.importBooks(any(), eq("text/csv"))).thenReturn(responseEntity);
+
+        // Realizamos la petición POST con el archivo CSV como cuerpo
+        mockMvc.perform(post("/api/book/importBooks")
+                .contentType("text/csv")
+                .content("title,author\nRayuela,Julio Cortázar\n"))
+                .andExpect(status().isOk()) // Validamos el código de estado
+                .andExpect(jsonPath("$.data.imported").value(1)); // Validamos el resumen
+
+        // Verificamos que se haya llamado al servicio
+        verify(bookService, times(1)).importBooks(any(), eq("text/csv"));
+    }
+
+
+    @Test
+    void testListAllBooksNotModified() throws Exception {
+        ApiResponse<List<BookSummaryDTO>> apiResponse = new ApiResponse<>("Los libros fueron consultados con éxito.",
+                List.of());
+        when(bookService.listAllBooks()).thenReturn(new ResponseEntity<>(apiResponse, HttpStatus.OK));
+
+        // La primera respuesta trae el ETag y las cabeceras de caché
+        String etag = mockMvc.perform(get("/api/book/listAllBooks"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=5, public"))
+                .andExpect(header().exists("Last-Modified"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Con el mismo ETag se responde 304 sin llamar al servicio
+        mockMvc.perform(get("/api/book/listAllBooks").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(bookService, times(1)).listAllBooks();
+
+        // Después de un cambio en el catálogo el ETag anterior ya no sirve
+        catalogVersion.bump();
+        mockMvc.perform(get("/api/book/listAllBooks").header("If-None-Match", etag))
+                .andExpect(status().isOk());
+        verify(bookService, times(2)).listAllBooks();
+    }
+
+    /*
+     * Probar que con Accept: application/x-jackson-smile la lista se responde en
+     * Smile, con el mismo contenido que en JSON y con un ETag débil.
+     */
+    @Test
+    void testListAllBooksSmile() throws Exception {
+        mockMvc = MockMvcBuilders.standaloneSetup(bookController)
+                .setMessageConverters(
+                        new JacksonConfig().smileHttpMessageConverter(Jackson2ObjectMapperBuilder.json()),
+                        new MappingJackson2HttpMessageConverter())
+                .build();
+        ApiResponse<List<BookSummaryDTO>> apiResponse = new ApiResponse<>("Los libros fueron consultados con éxito.",
+                List.of(new BookSummaryDTO(1L, "Title 1", "Author 1", "Genre 1", true)));
+        when(bookService.listAllBooks()).thenReturn(new ResponseEntity<>(apiResponse, HttpStatus.OK));
+
+        byte[] body = mockMvc.perform(get("/api/book/listAllBooks").accept(JacksonConfig.SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(JacksonConfig.SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode response = new ObjectMapper(JacksonConfig.smileFactory()).readTree(body);
+        assertEquals("Title 1", response.path("data").path(0).path("title").asText());
+        assertTrue(catalogVersion.etag().startsWith("W/"));
+    }
+
+    /*
+     * Probar que /search y /quickSearch aceptan ?fields= y escriben solo los
+     * campos pedidos de cada libro.
+     */
+    @Test
+    void testSearchSparseFields() throws Exception {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        new JacksonConfig().sparseFieldsetCustomizer().customize(builder);
+        mockMvc = MockMvcBuilders.standaloneSetup(bookController)
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(builder.build()))
+                .build();
+        ResponseEntity<ApiResponse<List<BookSummaryDTO>>> responseEntity = new ResponseEntity<>(
+                new ApiResponse<>("Los libros fueron consultados con éxito.", List.of(BookSummaryDTO.of(book))),
+                HttpStatus.OK);
+        when(bookService.searchBooks("Test", null, null, null, false, 50)).thenReturn(responseEntity);
+        when(bookService.quickSearch("tst", 20)).thenReturn(responseEntity);
+
+        mockMvc.perform(get("/api/book/search").param("title", "Test").param("fields", "id,title"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].title").value("Test Book"))
+                .andExpect(jsonPath("$.data[0].author").doesNotExist());
+
+        mockMvc.perform(get("/api/book/quickSearch").param("q", "tst").param("fields", "id"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].id").value(1))
+                .andExpect(jsonPath("$.data[0].title").doesNotExist());
+    }
 }
@@ -1,18 +1,28 @@
 package com.libraryproject.library_project.controllers;
 
+import com.libraryproject.library_project.cache.CatalogVersion;
+import com.libraryproject.library_project.coalescing.CoalescedReads;
+import com.libraryproject.library_project.dto.BulkLoanDTO;
 import com.libraryproject.library_project.dto.LoanDTO;
+import com.libraryproject.library_project.dto.LoanResultDTO;
+import com.libraryproject.library_project.dto.UserLoanDTO;
 import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.idempotency.IdempotentRequests;
+import com.libraryproject.library_project.idempotency.InMemoryIdempotencyStore;
 import com.libraryproject.library_project.services.LoanService;
 import com.libraryproject.library_project.utils.ApiResponse;
+import com.libraryproject.library_project.utils.CursorPage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
@@ -22,6 +32,9 @@ import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -29,12 +42,24 @@ import java.util.List;
 @AutoConfigureMockMvc
 public class LoanControllerTest {
 
+    // Datos del usuario que BulkLoanDTO exige en cada préstamo múltiple
+    private static final String BULK_LOAN_USER = "{\"userId\":1, \"userName\":\"Ana\", "
+            + "\"userEmail\":\"ana@example.com\", \"userPhone\":\"3001234567\", \"userAddress\":\"Calle 1\", ";
+
     @Autowired
     private MockMvc mockMvc;
 
     @Mock
     private LoanService loanService;
 
+    @Spy
+    private IdempotentRequests idempotentRequests = new IdempotentRequests(
+            new InMemoryIdempotencyStore(100, Duration.ofHours(1)), new SimpleMeterRegistry(), Duration.ofSeconds(5));
+
+    @Spy
+    private CoalescedReads coalescedReads = new CoalescedReads(new CatalogVersion(Duration.ofSeconds(5)),
+            Jackson2ObjectMapperBuilder.json().build(), new SimpleMeterRegistry());
+
     @InjectMocks
     private LoanController loanController;
 
@@ -69,6 +94,95 @@ public class LoanControllerTest {
         verify(loanService, times(1)).createLoan(any(LoanDTO.class));
     }
 
+    @Test
+    void testCreateLoanReplaysIdempotencyKey() throws Exception {
+        // El primer intento presta el libro; el reintento con la misma clave no vuelve al servicio
+        ApiResponse<Book> apiResponse = new ApiResponse<>("Préstamo creado con éxito", null);
+        ResponseEntity<ApiResponse<Book>> responseEntity = new ResponseEntity<>(apiResponse, HttpStatus.CREATED);
+        when(loanService.createLoan(any(LoanDTO.class))).thenReturn(responseEntity);
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            mockMvc.perform(post("/api/loan/createLoan")
+                    .header(IdempotentRequests.KEY_HEADER, "kiosco-7-0001")
+                    .contentType("application/json")
+                    .content("{\"bookId\":1, \"userId\":1, \"loanDate\":\"2025-02-26\"}"))
+                    .andExpect(status().isCreated())
+                    .andExpect(jsonPath("$.message").value("Préstamo creado con éxito"));
+        }
+
+        verify(loanService, times(1)).createLoan(any(LoanDTO.class));
+    }
+
+    @Test
+    void testCreateLoanRejectsReusedIdempotencyKey() throws Exception {
+        // La misma clave con otro libro no recibe la respuesta del primer préstamo
+        ApiResponse<Book> apiResponse = new ApiResponse<>("Préstamo creado con éxito", null);
+        ResponseEntity<ApiResponse<Book>> responseEntity = new ResponseEntity<>(apiResponse, HttpStatus.CREATED);
+        when(loanService.createLoan(any(LoanDTO.class))).thenReturn(responseEntity);
+
+        mockMvc.perform(post("/api/loan/createLoan")
+                .header(IdempotentRequests.KEY_HEADER, "kiosco-7-0002")
+                .contentType("application/json")
+                .content("{\"bookId\":1, \"userId\":1, \"loanDate\":\"2025-02-26\"}"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(post("/api/loan/createLoan")
+                .header(IdempotentRequests.KEY_HEADER, "kiosco-7-0002")
+                .contentType("application/json")
+                .content("{\"bookId\":2, \"userId\":1, \"loanDate\":\"2025-02-26\"}"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.message").value("La clave de idempotencia ya se usó con otra petición."));
+
+        verify(loanService, times(1)).createLoan(any(LoanDTO.class));
+    }
+
+    @Test
+    void testReturnBook() throws Exception {
+        ApiResponse<Book> apiResponse = new ApiResponse<>("Devolución registrada exitosamente", null);
+        ResponseEntity<ApiResponse<Book>> responseEntity = new ResponseEntity<>(apiResponse, HttpStatus.OK);
+
+        when(loanService.returnBook(1L)).thenReturn(responseEntity);
+
+        mockMvc.perform(post("/api/loan/returnBook/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Devolución registrada exitosamente"));
+
+        verify(loanService, times(1)).returnBook(1L);
+    }
+
+    @Test
+    void testCreateLoans() throws Exception {
+        // Simulamos un préstamo múltiple con un libro prestado y otro no disponible
+        List<LoanResultDTO> results = List.of(LoanResultDTO.loaned(1L, 10L),
+                LoanResultDTO.rejected(2L, "El libro no esta disponible"));
+        ApiResponse<List<LoanResultDTO>> apiResponse = new ApiResponse<>("Se registraron 1 de 2 préstamos.", results);
+        ResponseEntity<ApiResponse<List<LoanResultDTO>>> responseEntity = new ResponseEntity<>(apiResponse,
+                HttpStatus.OK);
+
+        when(loanService.createLoans(any(BulkLoanDTO.class))).thenReturn(responseEntity);
+
+        mockMvc.perform(post("/api/loan/createLoans")
+                .contentType("application/json")
+                .content(BULK_LOAN_USER + "\"bookIds\":[1, 2], \"loanDate\":\"2025-02-26\", "
+                        + "\"returnDate\":\"2025-03-26\"}"))
+                .andExpect(status().isOk()) // Verifica que el código de estado es 200
+                .andExpect(jsonPath("$.data[0].loanId").value(10)) // Préstamo registrado
+                .andExpect(jsonPath("$.data[1].success").value(false)); // Libro rechazado
+
+        verify(loanService, times(1)).createLoans(any(BulkLoanDTO.class));
+    }
+
+    @Test
+    void testCreateLoansRequiresDates() throws Exception {
+        // Sin fechas la solicitud se rechaza antes de llegar al servicio
+        mockMvc.perform(post("/api/loan/createLoans")
+                .contentType("application/json")
+                .content(BULK_LOAN_USER + "\"bookIds\":[1, 2]}"))
+                .andExpect(status().isBadRequest());
+
+        verify(loanService, never()).createLoans(any(BulkLoanDTO.class));
+    }
+
     @Test
     void testListLoans() throws Exception {
         // Simulamos la respuesta del servicio para listar los préstamos
@@ -96,4 +210,47 @@ public class LoanControllerTest {
         // Verificamos que el servicio fue llamado una vez
         verify(loanService, times(1)).listLoans();
     }
+
+    @Test
+    void testListLoansPage() throws Exception {
+        // Simulamos la última página de préstamos (sin cursor siguiente)
+        LoanDTO loanDTO = new LoanDTO();
+        loanDTO.setLoanId(1L);
+        loanDTO.setBookId(1L);
+
+        CursorPage<LoanDTO> page = new CursorPage<>(List.of(loanDTO), null);
+        ApiResponse<CursorPage<LoanDTO>> apiResponse = new ApiResponse<>("Lista de préstamos", page);
+        ResponseEntity<ApiResponse<CursorPage<LoanDTO>>> responseEntity = new ResponseEntity<>(apiResponse,
+                HttpStatus.OK);
+
+        when(loanService.listLoansPage("10", 50)).thenReturn(responseEntity);
+
+        // Realizamos la petición GET con el cursor
+        mockMvc.perform(get("/api/loan/listLoansPage").param("cursor", "10"))
+                .andExpect(status().isOk()) // Verifica que el código de estado es 200
+                .andExpect(jsonPath("$.data.items[0].loanId").value(1)) // Verifica el id del préstamo
+                .andExpect(jsonPath("$.data.nextCursor").isEmpty()); // No hay más páginas
+
+        // Verificamos que el servicio fue llamado una vez
+        verify(loanService, times(1)).listLoansPage("10", 50);
+    }
+
+    @Test
+    void testListUserLoans() throws Exception {
+        // Simulamos la primera página del historial de un usuario
+        UserLoanDTO loan = new UserLoanDTO(5L, 1L, "Rayuela", "Julio Cortázar", null, null, null);
+        CursorPage<UserLoanDTO> page = new CursorPage<>(List.of(loan), "2025-02-25:5");
+        ApiResponse<CursorPage<UserLoanDTO>> apiResponse = new ApiResponse<>("Préstamos del usuario", page);
+        ResponseEntity<ApiResponse<CursorPage<UserLoanDTO>>> responseEntity = new ResponseEntity<>(apiResponse,
+                HttpStatus.OK);
+
+        when(loanService.listUserLoans(3L, null, 20)).thenReturn(responseEntity);
+
+        mockMvc.perform(get("/api/loan/user/3").param("size", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.items[0].title").value("Rayuela"))
+                .andExpect(jsonPath("$.data.nextCursor").value("2025-02-25:5"));
+
+        verify(loanService, times(1)).listUserLoans(3L, null, 20);
+    }
 }
@@ -0,0 +1,178 @@
+package com.libraryproject.library_project.datasource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.libraryproject.library_project.cache.HibernateCacheStats;
+import com.libraryproject.library_project.dto.BookSummaryDTO;
+import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.repositories.BookRepository;
+import com.libraryproject.library_project.services.BookService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/*
+ * Enrutamiento de lecturas a la réplica con dos bases H2: la principal la crea
+ * Hibernate y la réplica se arma a mano con otros datos, para saber de cuál
+ * salió cada respuesta. El retraso se lee de la tabla replica_lag. Las
+ * lecturas se hacen en una transacción de solo lectura propia, porque los
+ * listados de libros van siempre a la base principal.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "library.replica.url=" + ReplicaRoutingTest.REPLICA_URL,
+        "library.replica.lag-query=SELECT lag_seconds AS Seconds_Behind_Source FROM replica_lag",
+        "library.replica.max-lag=5s",
+        "library.replica.check-ms=3600000" })
+public class ReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ReplicaLagMonitor monitor;
+
+    @Autowired
+    private HibernateCacheStats hibernateCacheStats;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        bookRepository.deleteAll();
+        bookRepository.save(book("Primaria"));
+        replica("CREATE TABLE IF NOT EXISTS books (id BIGINT PRIMARY KEY, title VARCHAR(50) NOT NULL, "
+                + "author VARCHAR(50) NOT NULL, genre VARCHAR(50), availability BOOLEAN NOT NULL, "
+                + "created_at TIMESTAMP, updated_at TIMESTAMP)");
+        replica("CREATE TABLE IF NOT EXISTS replica_lag (lag_seconds BIGINT)");
+        replica("DELETE FROM books");
+        replica("DELETE FROM replica_lag");
+        replica("INSERT INTO books (id, title, author, availability) VALUES (1000, 'Réplica', 'Autor', TRUE)");
+        entityManagerFactory.getCache().evictAll();
+        entityManagerFactory.unwrap(SessionFactory.class).getStatistics().clear();
+    }
+
+    /*
+     * Probar que con la réplica al día los listados salen de ella y que esas
+     * lecturas no se guardan en la caché de consultas.
+     */
+    @Test
+    void testReadOnlyTransactionsUseReplica() throws SQLException {
+        setLag(0);
+
+        assertEquals(List.of("Réplica"), listedTitles());
+        assertTrue(monitor.isUsable());
+        assertEquals(0L, hibernateCacheStats.regions().get("queries").get("putCount"));
+    }
+
+    /*
+     * Probar que si la réplica se atrasa más de lo tolerado, o no informa su
+     * retraso, las lecturas vuelven a la base principal.
+     */
+    @Test
+    void testLaggingReplicaFallsBackToPrimary() throws SQLException {
+        setLag(60);
+        assertEquals(List.of("Primaria"), listedTitles());
+
+        replica("DELETE FROM replica_lag");
+        monitor.check();
+        assertFalse(monitor.isUsable());
+        assertEquals(List.of("Primaria"), listedTitles());
+
+        setLag(2);
+        assertEquals(List.of("Réplica"), listedTitles());
+    }
+
+    /*
+     * Probar que las escrituras siempre van a la base principal aunque la
+     * réplica esté disponible.
+     */
+    @Test
+    void testWritesGoToPrimary() throws SQLException {
+        setLag(0);
+
+        bookService.addBook(book("Nuevo"));
+        assertEquals(List.of("Réplica"), listedTitles());
+
+        setLag(60);
+        assertEquals(List.of("Primaria", "Nuevo"), listedTitles());
+    }
+
+    /*
+     * Probar que los listados y la búsqueda de libros, que responden con el ETag
+     * del catálogo, leen de la base principal aunque la réplica esté al día.
+     */
+    @Test
+    void testCatalogReadsWithEtagUsePrimary() throws SQLException, IOException {
+        setLag(0);
+        assertEquals(List.of("Réplica"), listedTitles());
+
+        assertEquals(List.of("Primaria"), titles(bookService.listAllBooks().getBody().getData()));
+        assertEquals(List.of("Primaria"), titles(bookService.listBooksPage(null, 10).getBody().getData().getItems()));
+        assertEquals(List.of("Primaria"),
+                titles(bookService.searchBooks(null, "Autor", null, null, false, 10).getBody().getData()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bookService.writeAllBooks(out);
+        String streamed = out.toString(StandardCharsets.UTF_8);
+        assertTrue(streamed.contains("\"title\":\"Primaria\""));
+        assertFalse(streamed.contains("Réplica"));
+    }
+
+    private List<String> listedTitles() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return titles(readOnly.execute(status -> bookRepository.findAllSummaries()));
+    }
+
+    private static List<String> titles(List<BookSummaryDTO> books) {
+        return books.stream().map(BookSummaryDTO::getTitle).toList();
+    }
+
+    private void setLag(long seconds) throws SQLException {
+        replica("DELETE FROM replica_lag");
+        replica("INSERT INTO replica_lag (lag_seconds) VALUES (" + seconds + ")");
+        monitor.check();
+    }
+
+    private static void replica(String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(REPLICA_URL, "sa", "");
+                Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static Book book(String title) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Autor de prueba");
+        book.setGenre("Novela");
+        return book;
+    }
+}
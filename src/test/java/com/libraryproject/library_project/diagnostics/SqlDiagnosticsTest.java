@@ -0,0 +1,89 @@
+package com.libraryproject.library_project.diagnostics;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+/*
+ * Diagnóstico de SQL sobre una base H2 real: las consultas se cuentan tanto por
+ * Hibernate como por JdbcTemplate y el diagnóstico se apaga en caliente.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sql-diagnostics;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "library.sql-diagnostics.enabled=true",
+        "library.sql-diagnostics.repeat-threshold=3" })
+@AutoConfigureMockMvc
+public class SqlDiagnosticsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SqlDiagnostics sqlDiagnostics;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @AfterEach
+    void tearDown() {
+        sqlDiagnostics.update(true, null, null, null);
+    }
+
+    /*
+     * Probar que una petición informa sus consultas en las cabeceras.
+     */
+    @Test
+    void testHeadersReportStatements() throws Exception {
+        mockMvc.perform(get("/api/book/listBooksPage"))
+                .andExpect(header().exists(SqlDiagnosticsHeaders.STATEMENTS))
+                .andExpect(header().exists(SqlDiagnosticsHeaders.TIME))
+                .andExpect(header().doesNotExist(SqlDiagnosticsHeaders.REPEATED));
+    }
+
+    /*
+     * Probar que con el diagnóstico apagado no se mide nada.
+     */
+    @Test
+    void testDisabledAtRuntime() throws Exception {
+        sqlDiagnostics.update(false, null, null, null);
+
+        mockMvc.perform(get("/api/book/listBooksPage"))
+                .andExpect(header().doesNotExist(SqlDiagnosticsHeaders.STATEMENTS));
+    }
+
+    /*
+     * Probar que la misma consulta repetida se detecta como posible N+1.
+     */
+    @Test
+    void testRepeatedQueryIsDetected() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        SqlRequestStats stats = SqlRequestStats.start();
+        try {
+            for (long id = 1; id <= 4; id++) {
+                jdbcTemplate.queryForList("SELECT id FROM books WHERE id = ?", id);
+            }
+            jdbcTemplate.queryForList("SELECT COUNT(*) FROM loans");
+        } finally {
+            SqlRequestStats.clear();
+        }
+
+        assertEquals(5, stats.getStatements());
+        Map.Entry<String, Integer> repeated = sqlDiagnostics.repeated(stats);
+        assertNotNull(repeated);
+        assertEquals("SELECT id FROM books WHERE id = ?", repeated.getKey());
+        assertEquals(4, repeated.getValue());
+    }
+}
@@ -0,0 +1,127 @@
+package com.libraryproject.library_project.feed;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.libraryproject.library_project.controllers.FeedController;
+import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.events.BookChangedEvent;
+
+public class ChangeFeedTest {
+
+    // Tareas de envío pendientes, para simular un cliente que no alcanza a leer
+    private final List<Runnable> pending = new ArrayList<>();
+
+    private ChangeFeed changeFeed;
+    private MockMvc mockMvc;
+
+    private void setUp(Executor executor, int bufferSize, int replaySize, int maxSubscribers) {
+        changeFeed = new ChangeFeed(Jackson2ObjectMapperBuilder.json().build(), executor, bufferSize, replaySize,
+                maxSubscribers, Duration.ofMinutes(1));
+        mockMvc = MockMvcBuilders.standaloneSetup(new FeedController(changeFeed)).build();
+    }
+
+    private MvcResult subscribe(Long lastEventId) throws Exception {
+        var builder = get("/api/feed/catalog");
+        if (lastEventId != null) {
+            builder.header("Last-Event-ID", lastEventId);
+        }
+        return mockMvc.perform(builder).andExpect(request().asyncStarted()).andReturn();
+    }
+
+    /*
+     * Probar que un cambio confirmado de un libro llega a todos los clientes con
+     * su número de secuencia y los datos del listado.
+     */
+    @Test
+    void testBookChangeReachesSubscribers() throws Exception {
+        setUp(Runnable::run, 10, 10, 10);
+        MvcResult first = subscribe(null);
+        MvcResult second = subscribe(null);
+
+        Book book = new Book();
+        book.setId(7L);
+        book.setTitle("Rayuela");
+        book.setAuthor("Julio Cortázar");
+        book.setAvailability(false);
+        changeFeed.onBookChanged(BookChangedEvent.updated(book));
+        changeFeed.onBookChanged(BookChangedEvent.deleted(8L));
+
+        for (MvcResult result : List.of(first, second)) {
+            String content = result.getResponse().getContentAsString();
+            assertTrue(content.contains("id:1\nevent:book-updated\ndata:{\"bookId\":7,\"book\":{\"id\":7,"));
+            assertTrue(content.contains("\"availability\":false"));
+            assertTrue(content.contains("id:2\nevent:book-deleted\ndata:{\"bookId\":8,\"book\":null}"));
+        }
+        assertEquals(2, changeFeed.subscriberCount());
+    }
+
+    /*
+     * Probar que al reconectarse con Last-Event-ID se repiten solo los eventos
+     * perdidos, y que si ya no están guardados se envía un resync.
+     */
+    @Test
+    void testReplayFromLastEventId() throws Exception {
+        setUp(Runnable::run, 10, 2, 10);
+        changeFeed.publish("book-created", "{\"bookId\":1}");
+        changeFeed.publish("book-created", "{\"bookId\":2}");
+        changeFeed.publish("book-created", "{\"bookId\":3}");
+
+        String content = subscribe(1L).getResponse().getContentAsString();
+        assertFalse(content.contains("id:1\n"));
+        assertTrue(content.contains("id:2\n"));
+        assertTrue(content.contains("id:3\n"));
+        assertFalse(content.contains(ChangeFeed.RESYNC));
+
+        // El evento 1 ya salió de los guardados
+        content = subscribe(0L).getResponse().getContentAsString();
+        assertTrue(content.contains("id:3\nevent:resync"));
+        assertFalse(content.contains("book-created"));
+    }
+
+    /*
+     * Probar que si un cliente no alcanza a leer, su cola no crece: los eventos
+     * pendientes se cambian por un solo resync y los demás clientes no se ven
+     * afectados.
+     */
+    @Test
+    void testSlowSubscriberGetsResync() throws Exception {
+        setUp(pending::add, 2, 10, 10);
+        MvcResult result = subscribe(null);
+
+        changeFeed.publish("book-updated", "{\"bookId\":1}");
+        changeFeed.publish("book-updated", "{\"bookId\":2}");
+        changeFeed.publish("book-updated", "{\"bookId\":3}");
+        pending.forEach(Runnable::run);
+
+        String content = result.getResponse().getContentAsString();
+        assertTrue(content.contains("id:3\nevent:resync"));
+        assertFalse(content.contains("book-updated"));
+        assertEquals(1, pending.size());
+    }
+
+    /*
+     * Probar que al llegar al máximo de clientes se responde 503.
+     */
+    @Test
+    void testMaxSubscribers() throws Exception {
+        setUp(Runnable::run, 10, 10, 1);
+        subscribe(null);
+
+        mockMvc.perform(get("/api/feed/catalog"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "30"));
+    }
+}
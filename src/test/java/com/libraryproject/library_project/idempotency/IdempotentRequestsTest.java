@@ -0,0 +1,155 @@
+package com.libraryproject.library_project.idempotency;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.libraryproject.library_project.utils.ApiResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class IdempotentRequestsTest {
+
+    private static final Map<String, Object> REQUEST = Map.of("bookId", 1, "userId", 1);
+
+    private SimpleMeterRegistry registry;
+    private IdempotentRequests idempotentRequests;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        idempotentRequests = new IdempotentRequests(new InMemoryIdempotencyStore(100, Duration.ofHours(1)),
+                registry, Duration.ofSeconds(5));
+        executions = new AtomicInteger();
+    }
+
+    /*
+     * Probar que una repetición recibe la misma respuesta, marcada como
+     * repetida, sin volver a ejecutar la operación.
+     */
+    @Test
+    void testReplayReturnsStoredResponse() {
+        ResponseEntity<?> first = idempotentRequests.execute("clave-1", "createLoan", REQUEST,
+                () -> created("Préstamo 1"));
+        ResponseEntity<?> replay = idempotentRequests.execute("clave-1", "createLoan", REQUEST,
+                () -> created("Préstamo 2"));
+
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.CREATED, replay.getStatusCode());
+        assertSame(first.getBody(), replay.getBody());
+        assertEquals("true", replay.getHeaders().getFirst(IdempotentRequests.REPLAYED_HEADER));
+        assertEquals(1.0, registry.counter(IdempotentRequests.REPLAYS_COUNTER).count());
+    }
+
+    /*
+     * Probar que las claves valen por operación, que sin clave se ejecuta
+     * siempre y que los errores 5xx no se guardan.
+     */
+    @Test
+    void testKeysAreScopedAndServerErrorsAreNotStored() {
+        idempotentRequests.execute("clave-1", "createLoan", REQUEST, () -> created("Préstamo"));
+        idempotentRequests.execute("clave-1", "addBook", REQUEST, () -> created("Libro"));
+        idempotentRequests.execute(null, "addBook", REQUEST, () -> created("Libro"));
+        idempotentRequests.execute(null, "addBook", REQUEST, () -> created("Libro"));
+        assertEquals(4, executions.get());
+
+        ResponseEntity<?> failed = idempotentRequests.execute("clave-2", "addBook", REQUEST, () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ApiResponse<>("Error", null));
+        });
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, failed.getStatusCode());
+        idempotentRequests.execute("clave-2", "addBook", REQUEST, () -> created("Libro"));
+        assertEquals(6, executions.get());
+
+        assertEquals(HttpStatus.BAD_REQUEST,
+                idempotentRequests.execute(" ", "addBook", REQUEST, () -> created("Libro")).getStatusCode());
+    }
+
+    /*
+     * Probar que una clave repetida con otro cuerpo recibe 422 sin ejecutar la
+     * operación ni entregar la respuesta guardada, y que el orden de los campos
+     * no cambia la huella.
+     */
+    @Test
+    void testSameKeyWithDifferentBodyIsRejected() {
+        idempotentRequests.execute("clave-1", "createLoan", REQUEST, () -> created("Préstamo 1"));
+
+        ResponseEntity<?> other = idempotentRequests.execute("clave-1", "createLoan",
+                Map.of("bookId", 2, "userId", 1), () -> created("Préstamo 2"));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, other.getStatusCode());
+        assertNull(other.getHeaders().getFirst(IdempotentRequests.REPLAYED_HEADER));
+
+        Map<String, Object> reordered = new LinkedHashMap<>();
+        reordered.put("userId", 1);
+        reordered.put("bookId", 1);
+        ResponseEntity<?> replay = idempotentRequests.execute("clave-1", "createLoan", reordered,
+                () -> created("Préstamo 3"));
+        assertEquals(HttpStatus.CREATED, replay.getStatusCode());
+        assertEquals(1, executions.get());
+        assertEquals(1.0, registry.counter(IdempotentRequests.REPLAYS_COUNTER).count());
+    }
+
+    /*
+     * Probar que varias peticiones simultáneas con la misma clave ejecutan la
+     * operación una sola vez y todas reciben su respuesta.
+     */
+    @Test
+    void testConcurrentDuplicatesAreCoalesced() throws Exception {
+        int requests = 8;
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<ResponseEntity<?>>> responses = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                responses.add(executor.submit(() -> idempotentRequests.execute("clave-1", "createLoan", REQUEST,
+                        () -> {
+                            started.countDown();
+                            await(release);
+                            return created("Préstamo");
+                        })));
+            }
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            // Da tiempo a que las demás lleguen mientras la primera sigue en curso
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<ResponseEntity<?>> response : responses) {
+                assertEquals(HttpStatus.CREATED, response.get(5, TimeUnit.SECONDS).getStatusCode());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, executions.get());
+        assertEquals(requests - 1, registry.counter(IdempotentRequests.REPLAYS_COUNTER).count());
+    }
+
+    private ResponseEntity<?> created(String message) {
+        executions.incrementAndGet();
+        return ResponseEntity.status(HttpStatus.CREATED).body(new ApiResponse<>(message, null));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
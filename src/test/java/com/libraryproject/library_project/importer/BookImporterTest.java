@@ -0,0 +1,208 @@
+package com.libraryproject.library_project.importer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryproject.library_project.dto.BookImportResultDTO;
+import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.events.BookChangedEvent;
+import com.libraryproject.library_project.metrics.LibraryMetrics;
+import com.libraryproject.library_project.repositories.BookRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+
+public class BookImporterTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private BookImporter bookImporter;
+
+    // Libros recibidos por cada llamada a insertAll, es decir, cada lote
+    private final List<List<String>> batches = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        bookImporter = new BookImporter(bookRepository, new ObjectMapper().findAndRegisterModules(),
+                Validation.buildDefaultValidatorFactory().getValidator(), new TransactionTemplate(transactionManager),
+                eventPublisher, new LibraryMetrics(meterRegistry), 2, 100);
+
+        when(bookRepository.findByTitleIn(any())).thenReturn(List.of());
+        when(bookRepository.insertAll(any())).thenAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            List<String> titles = new ArrayList<>();
+            for (Book book : books) {
+                book.setId((long) (batches.size() * 10 + titles.size() + 1));
+                titles.add(book.getTitle());
+            }
+            batches.add(titles);
+            return books;
+        });
+    }
+
+    /*
+     * Probar que un CSV se importa en lotes del tamaño configurado, con el
+     * formato de addBook y avisando el avance después de cada lote.
+     */
+    @Test
+    void testImportCsvInBatches() throws Exception {
+        String csv = "title,author,genre,availability\n"
+                + "cien años de soledad,GABRIEL GARCÍA MÁRQUEZ,novela,true\n"
+                + "\"Rayuela, edición\",Julio Cortázar,,false\n"
+                + "Ficciones,Jorge Luis Borges,Cuentos,\n";
+        List<BookImportResultDTO> progress = new ArrayList<>();
+
+        BookImportResultDTO result = bookImporter.importBooks(input(csv), BookImportFormat.CSV, progress::add);
+
+        assertTrue(result.isCompleted());
+        assertEquals(3, result.getProcessed());
+        assertEquals(3, result.getImported());
+        assertEquals(List.of(List.of("Cien años de soledad", "Rayuela, edición"), List.of("Ficciones")), batches);
+        assertEquals(2, progress.size());
+        assertEquals(2, progress.get(0).getImported());
+        assertNull(progress.get(0).getErrors());
+        verify(eventPublisher, times(3)).publishEvent(any(BookChangedEvent.class));
+    }
+
+    /*
+     * Probar que las filas inválidas, repetidas o ya existentes se informan con su
+     * número de fila y no detienen la importación.
+     */
+    @Test
+    void testImportCsvReportsRowErrors() throws Exception {
+        Book existing = new Book();
+        existing.setTitle("Ficciones");
+        existing.setAuthor("Jorge luis borges");
+        when(bookRepository.findByTitleIn(any())).thenReturn(List.of(titleAndAuthor(existing)));
+
+        String csv = "author,title\n"
+                + "Julio Cortázar,Rayuela\n"
+                + "Julio Cortázar,\n"
+                + "julio cortázar,RAYUELA\n"
+                + "Jorge Luis Borges,\"Ficciones\"\n";
+
+        BookImportResultDTO result = bookImporter.importBooks(input(csv), BookImportFormat.CSV, progress -> {
+        });
+
+        assertEquals(4, result.getProcessed());
+        assertEquals(1, result.getImported());
+        assertEquals(2, result.getDuplicates());
+        assertEquals(1, result.getFailed());
+        assertEquals(3, result.getErrors().size());
+        assertEquals(3, result.getErrors().get(0).getRow());
+        assertTrue(result.getErrors().get(0).getMessage().contains("El título es obligatorio."));
+        assertEquals(4, result.getErrors().get(1).getRow());
+        assertEquals("El libro ya existe en la biblioteca.", result.getErrors().get(1).getMessage());
+        assertEquals(5, result.getErrors().get(2).getRow());
+
+        // Los contadores por resultado coinciden con el resumen
+        assertEquals(1, meterRegistry.counter(LibraryMetrics.BOOKS, "outcome", LibraryMetrics.IMPORTED).count());
+        assertEquals(2, meterRegistry.counter(LibraryMetrics.BOOKS, "outcome", LibraryMetrics.DUPLICATE).count());
+        assertEquals(1, meterRegistry.counter(LibraryMetrics.BOOKS, "outcome", LibraryMetrics.INVALID).count());
+    }
+
+    /*
+     * Probar que un campo entre comillas puede tener comas y saltos de línea, y
+     * que el número de fila sigue siendo el de la línea donde empieza.
+     */
+    @Test
+    void testImportCsvQuotedMultilineField() throws Exception {
+        String csv = "title,author\n"
+                + "\"Ficciones,\nedición\",Jorge Luis Borges\n"
+                + ",Sin Título\n";
+
+        BookImportResultDTO result = bookImporter.importBooks(input(csv), BookImportFormat.CSV, progress -> {
+        });
+
+        assertEquals(List.of(List.of("Ficciones,\nedición")), batches);
+        assertEquals(4, result.getErrors().get(0).getRow());
+    }
+
+    /*
+     * Probar que un CSV sin las columnas obligatorias se rechaza completo.
+     */
+    @Test
+    void testImportCsvWithoutRequiredColumns() {
+        assertThrows(IllegalArgumentException.class,
+                () -> bookImporter.importBooks(input("titulo,autor\nRayuela,Cortázar\n"), BookImportFormat.CSV,
+                        progress -> {
+                        }));
+        verify(bookRepository, never()).insertAll(any());
+    }
+
+    /*
+     * Probar que en NDJSON una línea mal formada solo afecta a esa fila.
+     */
+    @Test
+    void testImportNdjson() throws Exception {
+        String ndjson = "{\"title\":\"Rayuela\",\"author\":\"Julio Cortázar\"}\n"
+                + "{\"title\":\"Ficciones\",\n"
+                + "\n"
+                + "{\"title\":\"Ficciones\",\"author\":\"Jorge Luis Borges\",\"availability\":false}\n";
+
+        BookImportResultDTO result = bookImporter.importBooks(input(ndjson), BookImportFormat.NDJSON,
+                progress -> {
+                });
+
+        assertEquals(3, result.getProcessed());
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getFailed());
+        assertEquals(2, result.getErrors().get(0).getRow());
+        assertTrue(result.getErrors().get(0).getMessage().startsWith("JSON inválido"));
+    }
+
+    /*
+     * Probar que el formato se elige según el Content-Type.
+     */
+    @Test
+    void testFormatFromContentType() {
+        assertEquals(BookImportFormat.CSV, BookImportFormat.fromContentType("text/csv; charset=UTF-8"));
+        assertEquals(BookImportFormat.NDJSON, BookImportFormat.fromContentType("application/x-ndjson"));
+        assertThrows(IllegalArgumentException.class, () -> BookImportFormat.fromContentType("application/xml"));
+        assertThrows(IllegalArgumentException.class, () -> BookImportFormat.fromContentType(null));
+    }
+
+    private static InputStream input(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static BookRepository.TitleAndAuthor titleAndAuthor(Book book) {
+        return new BookRepository.TitleAndAuthor() {
+            @Override
+            public String getTitle() {
+                return book.getTitle();
+            }
+
+            @Override
+            public String getAuthor() {
+                return book.getAuthor();
+            }
+        };
+    }
+}
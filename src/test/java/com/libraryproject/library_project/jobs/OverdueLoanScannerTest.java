@@ -0,0 +1,175 @@
+package com.libraryproject.library_project.jobs;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.entities.Loan;
+import com.libraryproject.library_project.entities.OverdueLoan;
+import com.libraryproject.library_project.entities.User;
+import com.libraryproject.library_project.events.LoanOverdueEvent;
+import com.libraryproject.library_project.repositories.BookRepository;
+import com.libraryproject.library_project.repositories.JobCheckpointRepository;
+import com.libraryproject.library_project.repositories.LoanRepository;
+import com.libraryproject.library_project.repositories.OverdueLoanRepository;
+import com.libraryproject.library_project.repositories.UserRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Revisión de préstamos vencidos sobre una base H2 real, con bloques pequeños
+ * para recorrer varias páginas.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:overdue-loans;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "library.overdue.chunk-size=2" })
+@RecordApplicationEvents
+public class OverdueLoanScannerTest {
+
+    private static final LocalDate TODAY = LocalDate.parse("2025-03-10");
+
+    @Autowired
+    private OverdueLoanScanner scanner;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JobCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private OverdueLoanRepository overdueLoanRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        overdueLoanRepository.deleteAll();
+        loanRepository.deleteAll();
+        checkpointRepository.deleteAll();
+        user = new User();
+        user.setId(1L);
+        user.setName("Usuario");
+        user.setEmail("usuario@example.com");
+        user = userRepository.save(user);
+    }
+
+    /*
+     * Probar que se informan solo los préstamos activos vencidos, en orden de
+     * fecha de devolución, aunque ocupen varios bloques.
+     */
+    @Test
+    void testScanFindsActiveOverdueLoans() {
+        Loan first = persistLoan("2025-03-01", false);
+        Loan second = persistLoan("2025-03-05", false);
+        persistLoan("2025-03-02", true);
+        Loan third = persistLoan("2025-03-09", false);
+        persistLoan("2025-03-10", false);
+        persistLoan("2025-03-20", false);
+        double rowsBefore = meterRegistry.counter(OverdueLoanScanner.ROWS_COUNTER).count();
+
+        assertEquals(3, scanner.scan(TODAY));
+
+        assertEquals(List.of(first.getId(), second.getId(), third.getId()), overdueLoanIds());
+        assertEquals(List.of(first.getId(), second.getId(), third.getId()), storedOverdueLoanIds());
+        OverdueLoan stored = overdueLoanRepository.findById(second.getId()).orElseThrow();
+        assertEquals(second.getBookId(), stored.getBookId());
+        assertEquals(user.getId(), stored.getUserId());
+        assertEquals(LocalDate.parse("2025-03-05"), stored.getReturnDate());
+        assertEquals(3, meterRegistry.counter(OverdueLoanScanner.ROWS_COUNTER).count() - rowsBefore);
+        assertTrue(meterRegistry.timer(OverdueLoanScanner.SCAN_TIMER).count() > 0);
+    }
+
+    /*
+     * Probar que una segunda ejecución empieza donde terminó la anterior y solo
+     * ve los préstamos que vencieron después.
+     */
+    @Test
+    void testScanResumesFromHighWaterMark() {
+        persistLoan("2025-03-01", false);
+        Loan dueToday = persistLoan("2025-03-10", false);
+        assertEquals(1, scanner.scan(TODAY));
+
+        events.clear();
+        assertEquals(0, scanner.scan(TODAY));
+
+        assertEquals(1, scanner.scan(TODAY.plusDays(1)));
+        assertEquals(List.of(dueToday.getId()), overdueLoanIds());
+        assertEquals(2, overdueLoanRepository.count());
+    }
+
+    /*
+     * Probar que si no se pueden guardar los préstamos vencidos de un bloque el
+     * punto de control no avanza y la siguiente ejecución los vuelve a ver.
+     */
+    @Test
+    void testCheckpointWaitsForStoredOverdueLoans() {
+        Loan loan = persistLoan("2025-03-01", false);
+        OverdueLoan existing = new OverdueLoan();
+        existing.setLoanId(loan.getId());
+        existing.setBookId(loan.getBookId());
+        existing.setUserId(user.getId());
+        existing.setReturnDate(loan.getReturnDate());
+        existing.setDetectedAt(LocalDateTime.now());
+        overdueLoanRepository.save(existing);
+
+        assertThrows(RuntimeException.class, () -> scanner.scan(TODAY));
+        assertTrue(checkpointRepository.findById(OverdueLoanScanner.JOB_NAME).isEmpty());
+
+        overdueLoanRepository.deleteAll();
+        assertEquals(1, scanner.scan(TODAY));
+        assertEquals(List.of(loan.getId()), storedOverdueLoanIds());
+    }
+
+    private List<Long> overdueLoanIds() {
+        return events.stream(LoanOverdueEvent.class).map(LoanOverdueEvent::loanId).toList();
+    }
+
+    private List<Long> storedOverdueLoanIds() {
+        List<Long> ids = new ArrayList<>();
+        overdueLoanRepository.findAll().forEach(overdue -> ids.add(overdue.getLoanId()));
+        ids.sort(null);
+        return ids;
+    }
+
+    private Loan persistLoan(String returnDate, boolean returned) {
+        Book book = new Book();
+        book.setTitle("Libro " + returnDate);
+        book.setAuthor("Autor");
+        book = bookRepository.save(book);
+
+        Loan loan = new Loan();
+        loan.setUserId(user.getId());
+        loan.setBookId(book.getId());
+        loan.setLoanDate(LocalDate.parse("2025-02-25"));
+        loan.setReturnDate(LocalDate.parse(returnDate));
+        if (returned) {
+            loan.setReturnedAt(LocalDateTime.now());
+        }
+        return loanRepository.save(loan);
+    }
+}
@@ -0,0 +1,182 @@
+package com.libraryproject.library_project.outbox;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.libraryproject.library_project.dto.LoanDTO;
+import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.entities.OutboxEvent;
+import com.libraryproject.library_project.entities.User;
+import com.libraryproject.library_project.jobs.OverdueLoanScanner;
+import com.libraryproject.library_project.repositories.JobCheckpointRepository;
+import com.libraryproject.library_project.repositories.LoanRepository;
+import com.libraryproject.library_project.repositories.OutboxRepository;
+import com.libraryproject.library_project.repositories.UserRepository;
+import com.libraryproject.library_project.services.BookService;
+import com.libraryproject.library_project.services.LoanService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/*
+ * Outbox sobre una base H2 real con el destino en memoria y lotes pequeños para
+ * recorrer varios.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "library.outbox.enabled=true",
+        "library.outbox.sink=memory",
+        "library.outbox.batch-size=2",
+        "library.outbox.poll-ms=3600000" })
+public class OutboxRelayTest {
+
+    private static final long USER_ID = 1L;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private InMemoryOutboxSink sink;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OverdueLoanScanner overdueLoanScanner;
+
+    @Autowired
+    private JobCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository.deleteAll();
+        loanRepository.deleteAll();
+        checkpointRepository.deleteAll();
+        sink.clear();
+        if (!userRepository.existsById(USER_ID)) {
+            User user = new User();
+            user.setId(USER_ID);
+            user.setName("Usuario");
+            user.setEmail("usuario@example.com");
+            userRepository.save(user);
+        }
+    }
+
+    /*
+     * Probar que el alta, el préstamo y la devolución de un libro dejan sus
+     * eventos en el outbox y que el envío los entrega en orden y los borra.
+     */
+    @Test
+    void testEventsAreRelayedInOrder() {
+        Long bookId = addBook("Rayuela");
+        loanService.createLoan(loanFor(bookId));
+        loanService.returnBook(bookId);
+        assertEquals(5, outboxRepository.count());
+
+        assertEquals(5, outboxRelay.relay());
+
+        List<OutboxEvent> events = sink.events();
+        assertEquals(List.of("book-created", "book-updated", "loan-created", "book-updated", "loan-returned"),
+                events.stream().map(OutboxEvent::getEventType).toList());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(bookId, events.get(i).getAggregateId());
+            if (i > 0) {
+                assertTrue(events.get(i).getId() > events.get(i - 1).getId());
+            }
+        }
+        assertTrue(events.get(2).getPayload().contains("\"userId\":1"));
+        assertEquals(0, outboxRepository.count());
+    }
+
+    /*
+     * Probar que si la transacción del cambio se deshace, su evento tampoco queda.
+     */
+    @Test
+    void testRolledBackChangeLeavesNoEvent() {
+        transactionTemplate.executeWithoutResult(status -> {
+            addBook("Ficciones");
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, outboxRepository.count());
+    }
+
+    /*
+     * Probar que si el destino falla el lote queda en el outbox y se entrega en
+     * el siguiente intento.
+     */
+    @Test
+    void testFailedBatchIsRedelivered() {
+        addBook("El Aleph");
+        OutboxRelay failing = new OutboxRelay(outboxRepository, events -> {
+            throw new IOException("Destino no disponible");
+        }, transactionTemplate, new SimpleMeterRegistry(), 2);
+
+        assertEquals(0, failing.relay());
+        assertEquals(1, outboxRepository.count());
+
+        assertEquals(1, outboxRelay.relay());
+        assertEquals("book-created", sink.events().get(0).getEventType());
+        assertEquals(0, outboxRepository.count());
+    }
+
+    /*
+     * Probar que la revisión de préstamos vencidos deja un evento loan-overdue
+     * por préstamo en la misma transacción que avanza su punto de control.
+     */
+    @Test
+    void testOverdueLoansAreRelayed() {
+        Long bookId = addBook("Pedro Páramo");
+        loanService.createLoan(loanFor(bookId));
+        outboxRepository.deleteAll();
+
+        assertEquals(1, overdueLoanScanner.scan(LocalDate.now().plusDays(16)));
+
+        assertEquals(1, outboxRelay.relay());
+        OutboxEvent event = sink.events().get(0);
+        assertEquals("loan-overdue", event.getEventType());
+        assertEquals(bookId, event.getAggregateId());
+        assertTrue(event.getPayload().contains("\"userId\":1"));
+    }
+
+    private Long addBook(String title) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Autor de prueba");
+        book.setGenre("Novela");
+        return bookService.addBook(book).getBody().getData().getId();
+    }
+
+    private LoanDTO loanFor(Long bookId) {
+        LoanDTO loanDTO = new LoanDTO();
+        loanDTO.setBookId(bookId);
+        loanDTO.setUserId(USER_ID);
+        loanDTO.setLoanDate(LocalDate.now());
+        loanDTO.setReturnDate(LocalDate.now().plusDays(15));
+        return loanDTO;
+    }
+}
@@ -0,0 +1,97 @@
+package com.libraryproject.library_project.repositories;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.libraryproject.library_project.dto.BookSummaryDTO;
+import com.libraryproject.library_project.entities.Book;
+
+@DataJpaTest
+public class BookRepositoryTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository.save(book("Cien años de soledad", "Gabriel garcía márquez", "Novela", true));
+        bookRepository.save(book("El amor en los tiempos del cólera", "Gabriel garcía márquez", "Novela", false));
+        bookRepository.save(book("Rayuela", "Julio cortázar", "Novela", true));
+        // "_" pasa la validación del título; "Libros" lo encontraría si se usara como comodín
+        bookRepository.save(book("Libro_1", "Autor_prueba", "Ensayo", true));
+        bookRepository.save(book("Libros de arena", "Jorge luis borges", "Cuento", true));
+    }
+
+    /*
+     * Probar la búsqueda por prefijo de autor combinada con la disponibilidad.
+     */
+    @Test
+    void testSearchByAuthorPrefixAndAvailability() {
+        Specification<Book> spec = Specification.where(BookSpecifications.authorStartsWith("Gabriel"))
+                .and(BookSpecifications.hasAvailability(true));
+
+        List<Book> books = bookRepository.findAll(spec, Sort.by("id"));
+
+        assertEquals(1, books.size());
+        assertEquals("Cien años de soledad", books.get(0).getTitle());
+    }
+
+    /*
+     * Probar la búsqueda por género y por texto contenido en el título.
+     */
+    @Test
+    void testSearchByGenreAndTitleContains() {
+        Specification<Book> spec = Specification.where(BookSpecifications.hasGenre("Novela"))
+                .and(BookSpecifications.titleContains("tiempos"));
+
+        List<Book> books = bookRepository.findAll(spec, Sort.by("id"));
+
+        assertEquals(1, books.size());
+        assertEquals("El amor en los tiempos del cólera", books.get(0).getTitle());
+    }
+
+    /*
+     * Probar que los comodines enviados por el cliente se buscan como texto.
+     */
+    @Test
+    void testSearchEscapesWildcards() {
+        List<Book> books = bookRepository.findAll(BookSpecifications.titleStartsWith("Libro_"));
+        assertEquals(1, books.size());
+        assertEquals("Libro_1", books.get(0).getTitle());
+        assertEquals(0, bookRepository.findAll(BookSpecifications.titleStartsWith("%")).size());
+        assertEquals(1, bookRepository.findAll(BookSpecifications.authorStartsWith("Autor_")).size());
+    }
+
+    /*
+     * Probar que findSummaries devuelve los DTO ordenados por id y respeta el
+     * límite.
+     */
+    @Test
+    void testFindSummariesWithLimit() {
+        Specification<Book> spec = Specification.where(BookSpecifications.hasGenre("Novela"));
+
+        List<BookSummaryDTO> books = bookRepository.findSummaries(spec, 2);
+
+        assertEquals(List.of("Cien años de soledad", "El amor en los tiempos del cólera"),
+                books.stream().map(BookSummaryDTO::getTitle).toList());
+        assertTrue(books.get(0).getId() < books.get(1).getId());
+        assertEquals(5, bookRepository.findSummaries(null, 10).size());
+    }
+
+    private Book book(String title, String author, String genre, boolean availability) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setGenre(genre);
+        book.setAvailability(availability);
+        return book;
+    }
+}
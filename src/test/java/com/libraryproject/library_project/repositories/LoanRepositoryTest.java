@@ -0,0 +1,197 @@
+package com.libraryproject.library_project.repositories;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import com.libraryproject.library_project.dto.LoanDTO;
+import com.libraryproject.library_project.dto.UserLoanDTO;
+import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.entities.Loan;
+import com.libraryproject.library_project.entities.User;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class LoanRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    private Statistics statistics;
+
+    private long nextUserId = 1;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /*
+     * Probar que findAllLoanDetails devuelve los datos del usuario y del libro de
+     * cada préstamo.
+     */
+    @Test
+    void testFindAllLoanDetails() {
+        persistLoans(3);
+
+        List<LoanDTO> loans = loanRepository.findAllLoanDetails();
+
+        assertEquals(3, loans.size());
+        LoanDTO first = loans.get(0);
+        assertEquals("Usuario 0", first.getUserName());
+        assertEquals("usuario1@example.com", first.getUserEmail());
+        assertNotNull(first.getBookId());
+        assertEquals(LocalDate.parse("2025-02-25"), first.getLoanDate());
+    }
+
+    /*
+     * Probar que la cantidad de sentencias SQL no crece con la cantidad de
+     * préstamos.
+     */
+    @Test
+    void testFindAllLoanDetailsUsesConstantQueries() {
+        persistLoans(5);
+        assertEquals(1, countStatements());
+
+        persistLoans(50);
+        assertEquals(1, countStatements());
+    }
+
+    /*
+     * Probar que insertAll guarda los préstamos en lote y asigna a cada uno su id.
+     */
+    @Test
+    void testInsertAll() {
+        User user = new User();
+        user.setId(nextUserId++);
+        user.setName("Usuario lote");
+        user.setEmail("lote@example.com");
+        entityManager.persist(user);
+
+        List<Loan> loans = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Book book = new Book();
+            book.setTitle("Libro lote " + i);
+            book.setAuthor("Autor");
+            entityManager.persist(book);
+
+            Loan loan = new Loan();
+            loan.setUserId(user.getId());
+            loan.setBookId(book.getId());
+            loan.setLoanDate(LocalDate.parse("2025-02-25"));
+            loan.setReturnDate(LocalDate.parse("2025-03-01"));
+            loans.add(loan);
+        }
+
+        loanRepository.insertAll(loans);
+
+        assertTrue(loans.stream().allMatch(loan -> loan.getId() != null));
+        assertEquals(3, loans.stream().map(Loan::getId).distinct().count());
+        entityManager.clear();
+        assertEquals(user.getId(), loanRepository.findById(loans.get(2).getId()).get().getUserId());
+        assertEquals(3, loanRepository.findAllLoanDetails().size());
+    }
+
+    /*
+     * Probar que markReturned cierra solo el préstamo activo del libro, una vez.
+     */
+    @Test
+    void testMarkReturned() {
+        persistLoans(2);
+        Long bookId = loanRepository.findAllLoanDetails().get(0).getBookId();
+        assertTrue(loanRepository.existsByBookIdAndReturnedAtIsNull(bookId));
+
+        assertEquals(1, loanRepository.markReturned(bookId, LocalDateTime.now()));
+        assertEquals(0, loanRepository.markReturned(bookId, LocalDateTime.now()));
+
+        entityManager.clear();
+        assertFalse(loanRepository.existsByBookIdAndReturnedAtIsNull(bookId));
+        assertEquals(1, entityManager.getEntityManager()
+                .createQuery("SELECT l FROM Loan l WHERE l.returnedAt IS NULL").getResultList().size());
+    }
+
+    /*
+     * Probar que el historial de un usuario viene del más reciente al más antiguo,
+     * con el título del libro, y que el cursor continúa sin repetir préstamos.
+     */
+    @Test
+    void testFindUserLoans() {
+        User user = new User();
+        user.setId(nextUserId++);
+        user.setName("Usuario historial");
+        user.setEmail("historial@example.com");
+        entityManager.persist(user);
+        persistLoans(2);
+
+        String[] dates = { "2025-01-10", "2025-02-01", "2025-02-01", "2025-01-20" };
+        for (int i = 0; i < dates.length; i++) {
+            Book book = new Book();
+            book.setTitle("Historial " + i);
+            book.setAuthor("Autor");
+            entityManager.persist(book);
+
+            Loan loan = new Loan();
+            loan.setUserId(user.getId());
+            loan.setBookId(book.getId());
+            loan.setLoanDate(LocalDate.parse(dates[i]));
+            loan.setReturnDate(LocalDate.parse(dates[i]).plusDays(15));
+            entityManager.persist(loan);
+        }
+        entityManager.flush();
+
+        List<UserLoanDTO> first = loanRepository.findUserLoans(user.getId(), PageRequest.ofSize(2));
+        assertEquals(List.of("Historial 2", "Historial 1"), first.stream().map(UserLoanDTO::getTitle).toList());
+
+        UserLoanDTO last = first.get(1);
+        List<UserLoanDTO> second = loanRepository.findUserLoansBefore(user.getId(), last.getLoanDate(),
+                last.getLoanId(), PageRequest.ofSize(2));
+        assertEquals(List.of("Historial 3", "Historial 0"), second.stream().map(UserLoanDTO::getTitle).toList());
+    }
+
+    // Ejecuta el listado y devuelve cuántas sentencias preparó Hibernate
+    private long countStatements() {
+        entityManager.clear();
+        statistics.clear();
+        loanRepository.findAllLoanDetails();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void persistLoans(int count) {
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setId(nextUserId++);
+            user.setName("Usuario " + i);
+            user.setEmail("usuario" + user.getId() + "@example.com");
+            entityManager.persist(user);
+
+            Book book = new Book();
+            book.setTitle("Libro " + i);
+            book.setAuthor("Autor");
+            book.setGenre("Novela");
+            entityManager.persist(book);
+
+            Loan loan = new Loan();
+            loan.setUserId(user.getId());
+            loan.setBookId(book.getId());
+            loan.setLoanDate(LocalDate.parse("2025-02-25"));
+            loan.setReturnDate(LocalDate.parse("2025-03-01"));
+            entityManager.persist(loan);
+        }
+        entityManager.flush();
+    }
+}
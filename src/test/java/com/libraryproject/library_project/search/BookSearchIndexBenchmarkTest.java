@@ -0,0 +1,95 @@
+package com.libraryproject.library_project.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.repositories.BookRepository;
+
+import jakarta.persistence.EntityManager;
+
+/*
+ * Medición de latencia del índice en memoria con un catálogo de 1M de libros.
+ * No corre con el resto de las pruebas; se ejecuta con:
+ *
+ * mvn test -Dtest=BookSearchIndexBenchmarkTest -Dbenchmarks=true -DargLine=-Xmx4g
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+public class BookSearchIndexBenchmarkTest {
+
+    private static final int BOOKS = 1_000_000;
+    private static final int QUERIES = 20_000;
+
+    private static final String[] WORDS = { "amor", "guerra", "noche", "ciudad", "río", "montaña", "sombra",
+            "tiempo", "memoria", "jardín", "océano", "silencio", "camino", "fuego", "invierno", "verano", "sueño",
+            "espejo", "laberinto", "ventana", "historia", "secreto", "viaje", "isla", "bosque", "luna", "sol",
+            "corazón", "palabra", "ciencia", "canción", "batalla", "reino", "desierto", "puerto", "estrella" };
+    private static final String[] NAMES = { "Gabriel", "Julio", "Isabel", "Jorge", "Laura", "Mario", "Elena",
+            "Pablo", "Carmen", "Rubén", "Sofía", "Andrés", "Lucía", "Tomás", "Valeria", "Óscar" };
+    private static final String[] SURNAMES = { "García", "Márquez", "Cortázar", "Allende", "Borges", "Vargas",
+            "Peña", "Núñez", "Fernández", "Gómez", "Rulfo", "Pérez", "Ibáñez", "Suárez", "Castaño", "Muñoz" };
+    private static final String[] GENRES = { "Novela", "Cuento", "Poesía", "Ensayo", "Teatro", "Historia" };
+
+    @Test
+    void benchmarkSearchLatency() {
+        Random random = new Random(42);
+        BookSearchIndex index = new BookSearchIndex(mock(BookRepository.class), mock(EntityManager.class), false);
+
+        long start = System.nanoTime();
+        for (long id = 1; id <= BOOKS; id++) {
+            Book book = new Book();
+            book.setId(id);
+            book.setTitle(pick(random, WORDS) + " " + pick(random, WORDS) + " " + id);
+            book.setAuthor(pick(random, NAMES) + " " + pick(random, SURNAMES));
+            book.setGenre(pick(random, GENRES));
+            index.index(book);
+        }
+        System.out.printf("Índice de %d libros construido en %d ms%n", BOOKS, (System.nanoTime() - start) / 1_000_000);
+
+        String[] queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String query = switch (i % 4) {
+                case 0 -> pick(random, WORDS) + " " + pick(random, WORDS) + " " + random.nextInt(BOOKS);
+                case 1 -> typo(random, pick(random, SURNAMES)) + " " + random.nextInt(BOOKS);
+                case 2 -> pick(random, NAMES) + " " + pick(random, SURNAMES) + " " + pick(random, WORDS);
+                default -> String.valueOf(random.nextInt(BOOKS));
+            };
+            queries[i] = query;
+        }
+
+        // Calentamiento del JIT
+        for (int i = 0; i < QUERIES / 4; i++) {
+            index.search(queries[i], 20);
+        }
+
+        long[] latencies = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            long queryStart = System.nanoTime();
+            index.search(queries[i], 20);
+            latencies[i] = System.nanoTime() - queryStart;
+        }
+        Arrays.sort(latencies);
+
+        double p50 = latencies[QUERIES / 2] / 1_000.0;
+        double p99 = latencies[QUERIES * 99 / 100] / 1_000.0;
+        System.out.printf("Búsquedas: %d, p50 = %.1f µs, p99 = %.1f µs, máx = %.1f µs%n", QUERIES, p50, p99,
+                latencies[QUERIES - 1] / 1_000.0);
+        assertEquals(BOOKS, index.size());
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    // Cambia una letra para simular un error de tipeo
+    private static String typo(Random random, String word) {
+        int position = 1 + random.nextInt(word.length() - 1);
+        return word.substring(0, position) + "x" + word.substring(position + 1);
+    }
+}
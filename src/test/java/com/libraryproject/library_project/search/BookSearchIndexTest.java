@@ -0,0 +1,108 @@
+package com.libraryproject.library_project.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.events.BookChangedEvent;
+import com.libraryproject.library_project.repositories.BookRepository;
+
+import jakarta.persistence.EntityManager;
+
+public class BookSearchIndexTest {
+
+    private BookRepository bookRepository;
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        index = new BookSearchIndex(bookRepository, mock(EntityManager.class), false);
+
+        index.index(book(1L, "Cien años de soledad", "Gabriel garcía márquez", "Novela"));
+        index.index(book(2L, "El amor en los tiempos del cólera", "Gabriel garcía márquez", "Novela"));
+        index.index(book(3L, "Rayuela", "Julio cortázar", "Novela"));
+        index.index(book(4L, "Pedro páramo", "Juan rulfo", "Novela"));
+    }
+
+    /*
+     * Probar que las tildes y mayúsculas no afectan la búsqueda.
+     */
+    @Test
+    void testSearchIgnoresAccents() {
+        assertEquals(List.of(3L), ids(index.search("CORTAZAR", 10)));
+        assertEquals(List.of(4L), ids(index.search("páramo", 10)));
+        assertEquals(List.of(1L), ids(index.search("anos soledad", 10)));
+    }
+
+    /*
+     * Probar que se encuentran palabras con errores de tipeo y por prefijo.
+     */
+    @Test
+    void testSearchToleratesTypos() {
+        assertEquals(List.of(3L), ids(index.search("rayeula", 10)));
+        assertEquals(List.of(1L, 2L), ids(index.search("gabriel marques", 10)));
+        assertEquals(List.of(4L), ids(index.search("rulf", 10)));
+    }
+
+    /*
+     * Probar que las coincidencias en el título pesan más que en el autor.
+     */
+    @Test
+    void testSearchRanksTitleFirst() {
+        index.index(book(5L, "Vida de márquez", "Otro autor", "Ensayo"));
+
+        List<Long> ids = ids(index.search("marquez", 10));
+
+        assertEquals(5L, ids.get(0));
+        assertEquals(3, ids.size());
+    }
+
+    /*
+     * Probar que los cambios del catálogo actualizan el índice.
+     */
+    @Test
+    void testIndexFollowsBookChanges() {
+        Book renamed = book(3L, "Historias de cronopios", "Julio cortázar", "Cuento");
+        index.onBookChanged(BookChangedEvent.updated(renamed));
+        assertTrue(index.search("rayuela", 10).isEmpty());
+        assertEquals(List.of(3L), ids(index.search("cronopios", 10)));
+
+        index.onBookChanged(BookChangedEvent.deleted(4L));
+        assertTrue(index.search("rulfo", 10).isEmpty());
+        assertEquals(3, index.size());
+    }
+
+    /*
+     * Probar que la reconstrucción carga el catálogo completo desde la base.
+     */
+    @Test
+    void testRebuild() {
+        when(bookRepository.streamAll()).thenReturn(Stream.of(book(10L, "Ficciones", "Jorge luis borges", "Cuento")));
+
+        index.rebuild();
+
+        assertTrue(index.isReady());
+        assertEquals(1, index.size());
+        assertEquals(List.of(10L), ids(index.search("borjes", 10)));
+    }
+
+    private List<Long> ids(List<Book> books) {
+        return books.stream().map(Book::getId).toList();
+    }
+
+    private Book book(Long id, String title, String author, String genre) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setGenre(genre);
+        return book;
+    }
+}
@@ -2,10 +2,18 @@ package com.libraryproject.library_project.services;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -14,20 +22,53 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.ResponseEntity;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.http.HttpStatus;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryproject.library_project.cache.CatalogCache;
+import com.libraryproject.library_project.dto.BookImportResultDTO;
+import com.libraryproject.library_project.dto.BookSummaryDTO;
 import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.events.BookChangedEvent;
+import com.libraryproject.library_project.importer.BookImportFormat;
+import com.libraryproject.library_project.importer.BookImporter;
+import com.libraryproject.library_project.metrics.LibraryMetrics;
 import com.libraryproject.library_project.repositories.BookRepository;
+import com.libraryproject.library_project.search.BookSearchIndex;
 import com.libraryproject.library_project.utils.ApiResponse;
+import com.libraryproject.library_project.utils.CursorPage;
+
 
 public class BookServiceTest {
 
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private CatalogCache catalogCache;
+
+    @Mock
+    private BookSearchIndex bookSearchIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private BookImporter bookImporter;
+
+    @Mock
+    private LibraryMetrics libraryMetrics;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
     @InjectMocks
     private BookService bookService;
 
@@ -50,8 +91,8 @@ public class BookServiceTest {
      */
     @Test
     void testListAllBooks() {
-        // Simulamos que bookRepository.findAll() devuelve una lista de libros
-        when(bookRepository.findAll()).thenReturn(List.of(newBook));
+        // Simulamos que el repositorio devuelve una lista de libros
+        when(bookRepository.findAllSummaries()).thenReturn(List.of(summary(newBook)));
 
         // Llamamos al método
         ResponseEntity<?> response = bookService.listAllBooks();
@@ -69,8 +110,8 @@ public class BookServiceTest {
      */
     @Test
     void testListAllBooksError() {
-        // Simulamos que bookRepository.findAll() lanza una excepción
-        when(bookRepository.findAll()).thenThrow(new RuntimeException("Error"));
+        // Simulamos que el repositorio lanza una excepción
+        when(bookRepository.findAllSummaries()).thenThrow(new RuntimeException("Error"));
 
         // Llamamos al método
         ResponseEntity<?> response = bookService.listAllBooks();
@@ -81,6 +122,142 @@ public class BookServiceTest {
         assertEquals("Error al intentar consultar los libros.", apiResponse.getMessage());
     }
 
+    /*
+     * Probar el comportamiento del método listBooksPage cuando la página viene
+     * completa. Se espera que el cursor apunte al último libro entregado.
+     */
+    @Test
+    void testListBooksPage() {
+        newBook.setId(7L);
+        when(bookRepository.findSummariesAfter(eq(5L), any(Pageable.class))).thenReturn(List.of(summary(newBook)));
+
+        ResponseEntity<?> response = bookService.listBooksPage("5", 1);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        CursorPage<?> page = (CursorPage<?>) ((ApiResponse<?>) response.getBody()).getData();
+        assertEquals(1, page.getItems().size());
+        assertEquals("7", page.getNextCursor());
+    }
+
+    /*
+     * Probar el comportamiento del método listBooksPage con la última página.
+     * Se espera que no haya cursor siguiente.
+     */
+    @Test
+    void testListBooksPageLastPage() {
+        newBook.setId(7L);
+        when(bookRepository.findSummariesAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(summary(newBook)));
+
+        ResponseEntity<?> response = bookService.listBooksPage(null, 50);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        CursorPage<?> page = (CursorPage<?>) ((ApiResponse<?>) response.getBody()).getData();
+        assertNull(page.getNextCursor());
+    }
+
+    /*
+     * Probar el comportamiento del método listBooksPage con un cursor inválido.
+     */
+    @Test
+    void testListBooksPageInvalidCursor() {
+        ResponseEntity<?> response = bookService.listBooksPage("abc", 50);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("El cursor no es válido.", ((ApiResponse<?>) response.getBody()).getMessage());
+    }
+
+    /*
+     * Probar que writeAllBooks escribe un libro por línea, sin las fechas de
+     * auditoría.
+     */
+    @Test
+    void testWriteAllBooks() throws Exception {
+        when(bookRepository.streamAllSummaries()).thenReturn(Stream.of(summary(newBook)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bookService.writeAllBooks(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(1, lines.length);
+        assertTrue(lines[0].contains("\"title\":\"Test Book\""));
+        assertFalse(lines[0].contains("createdAt"));
+    }
+
+    /*
+     * Probar el comportamiento del método searchBooks por prefijo. Se espera que
+     * use los filtros de la base y no la búsqueda FULLTEXT.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    void testSearchBooksByPrefix() {
+        when(bookRepository.findSummaries(any(Specification.class), eq(20))).thenReturn(List.of(summary(newBook)));
+
+        ResponseEntity<?> response = bookService.searchBooks("Test", null, "Fiction", true, false, 20);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of(summary(newBook)), ((ApiResponse<?>) response.getBody()).getData());
+        verify(bookRepository, never()).searchFullText(anyString(), any(), any(), anyInt());
+        verify(bookRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
+
+    /*
+     * Probar el comportamiento del método searchBooks con contains=true. Se
+     * espera que use el índice FULLTEXT con todas las palabras como prefijos.
+     */
+    @Test
+    void testSearchBooksContains() {
+        when(bookRepository.searchFullText(anyString(), any(), any(), anyInt()))
+                .thenReturn(List.of(summary(newBook)));
+
+        ResponseEntity<?> response = bookService.searchBooks("cien años", "garcía", null, null, true, 20);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(bookRepository).searchFullText(eq("+cien* +años* +garcía*"), isNull(), isNull(), eq(20));
+    }
+
+    /*
+     * Probar el comportamiento del método searchBooks sin criterios.
+     */
+    @Test
+    void testSearchBooksWithoutCriteria() {
+        ResponseEntity<?> response = bookService.searchBooks(null, " ", null, null, false, 20);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Debe indicar al menos un criterio de búsqueda.",
+                ((ApiResponse<?>) response.getBody()).getMessage());
+    }
+
+    /*
+     * Probar el comportamiento del método quickSearch con el índice listo. Se
+     * espera que la búsqueda no consulte la base de datos y devuelva los libros
+     * sin las fechas de auditoría.
+     */
+    @Test
+    void testQuickSearch() {
+        when(bookSearchIndex.isReady()).thenReturn(true);
+        when(bookSearchIndex.search("tst bok", 20)).thenReturn(List.of(newBook));
+
+        ResponseEntity<?> response = bookService.quickSearch("tst bok", 20);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of(summary(newBook)), ((ApiResponse<?>) response.getBody()).getData());
+        verifyNoInteractions(bookRepository);
+    }
+
+    /*
+     * Probar el comportamiento del método quickSearch mientras el índice se
+     * construye.
+     */
+    @Test
+    void testQuickSearchIndexNotReady() {
+        when(bookSearchIndex.isReady()).thenReturn(false);
+
+        ResponseEntity<?> response = bookService.quickSearch("test", 20);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        verify(bookSearchIndex, never()).search(anyString(), anyInt());
+    }
+
     /*
      * Probar el comportamiento del método addBook cuando se agrega un libro de
      * manera correcta.
@@ -98,6 +275,9 @@ public class BookServiceTest {
         assertNotNull(response.getBody());
         ApiResponse<?> apiResponse = (ApiResponse<?>) response.getBody();
         assertEquals("El libro fue agregado con éxito.", apiResponse.getMessage());
+
+        // Verificamos que se notifique el cambio del catálogo
+        verify(eventPublisher).publishEvent(any(BookChangedEvent.class));
     }
 
     /*
@@ -128,10 +308,10 @@ public class BookServiceTest {
         newBook.setId(1L); // Asignamos un id ficticio para que el libro sea "existente"
 
         // Simulamos que el libro existe en la base de datos
-        when(bookRepository.findById(anyLong())).thenReturn(Optional.of(newBook));
+        when(catalogCache.findBook(anyLong())).thenReturn(Optional.of(newBook));
 
         // Simulamos el comportamiento de save() para que devuelva el libro actualizado
-        when(bookRepository.save(any(Book.class))).thenReturn(newBook);
+        when(catalogCache.saveBook(any(Book.class))).thenReturn(newBook);
 
         // Actualizamos los valores del libro
         newBook.setTitle("Updated Book");
@@ -148,6 +328,30 @@ public class BookServiceTest {
         assertEquals("El libro fue actualizado con éxito.", apiResponse.getMessage());
     }
 
+    /*
+     * Probar que updateBook no cambia la disponibilidad: un libro prestado sigue
+     * no disponible aunque la petición diga lo contrario.
+     */
+    @Test
+    void testUpdateBookKeepsAvailability() {
+        Book stored = new Book();
+        stored.setId(1L);
+        stored.setTitle("Test Book");
+        stored.setAuthor("Test Author");
+        stored.setAvailability(false);
+        when(catalogCache.findBook(1L)).thenReturn(Optional.of(stored));
+        when(catalogCache.saveBook(any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        newBook.setId(1L);
+        newBook.setTitle("Updated Book");
+        newBook.setAvailability(true);
+        ResponseEntity<?> response = bookService.updateBook(newBook);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("Updated Book", stored.getTitle());
+        assertFalse(stored.getAvailability());
+    }
+
     /*
      * Probar el comportamiento del método updateBook cuando se intenta actualizar
      * un
@@ -156,7 +360,7 @@ public class BookServiceTest {
     @Test
     void testUpdateBookNotFound() {
         // Simulamos que el libro no existe en la base de datos
-        when(bookRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(catalogCache.findBook(anyLong())).thenReturn(Optional.empty());
 
         // Llamamos al método
         ResponseEntity<?> response = bookService.updateBook(newBook);
@@ -174,7 +378,7 @@ public class BookServiceTest {
     @Test
     void testDeleteBook() {
         // Simulamos que el libro se elimina correctamente
-        doNothing().when(bookRepository).deleteById(anyLong());
+        doNothing().when(catalogCache).deleteBook(anyLong());
 
         // Llamamos al método
         ResponseEntity<?> response = bookService.deleteBook(1L);
@@ -183,6 +387,9 @@ public class BookServiceTest {
         assertEquals(HttpStatus.OK, response.getStatusCode());
         ApiResponse<?> apiResponse = (ApiResponse<?>) response.getBody();
         assertEquals("El libro fue eliminado con éxito.", apiResponse.getMessage());
+
+        // Verificamos que se notifique la eliminación del libro
+        verify(eventPublisher).publishEvent(BookChangedEvent.deleted(1L));
     }
 
     /*
@@ -192,7 +399,7 @@ public class BookServiceTest {
     @Test
     void testDeleteBookNotFound() {
         // Simulamos que el libro no existe al intentar eliminarlo
-        doThrow(new EmptyResultDataAccessException(1)).when(bookRepository).deleteById(anyLong());
+        doThrow(new EmptyResultDataAccessException(1)).when(catalogCache).deleteBook(anyLong());
 
         // Llamamos al método
         ResponseEntity<?> response = bookService.deleteBook(1L);
@@ -202,4 +409,43 @@ public class BookServiceTest {
         ApiResponse<?> apiResponse = (ApiResponse<?>) response.getBody();
         assertEquals("Error al eliminar, el libro no existe.", apiResponse.getMessage());
     }
+
+    /*
+     * Probar que importBooks elige el formato según el Content-Type y devuelve el
+     * resumen de la importación.
+     */
+    @Test
+    void testImportBooks() throws Exception {
+        BookImportResultDTO result = new BookImportResultDTO();
+        result.setProcessed(3);
+        result.setImported(2);
+        when(bookImporter.importBooks(any(), eq(BookImportFormat.CSV), any())).thenReturn(result);
+
+        ResponseEntity<?> response = bookService.importBooks(new ByteArrayInputStream(new byte[0]), "text/csv");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        ApiResponse<?> apiResponse = (ApiResponse<?>) response.getBody();
+        assertEquals("Se importaron 2 de 3 libros.", apiResponse.getMessage());
+        assertSame(result, apiResponse.getData());
+    }
+
+    /*
+     * Probar que importBooks rechaza un archivo CSV sin las columnas obligatorias.
+     */
+    @Test
+    void testImportBooksInvalidFile() throws Exception {
+        when(bookImporter.importBooks(any(), any(), any()))
+                .thenThrow(new IllegalArgumentException("El archivo CSV debe tener las columnas title y author."));
+
+        ResponseEntity<?> response = bookService.importBooks(new ByteArrayInputStream(new byte[0]), "text/csv");
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("El archivo CSV debe tener las columnas title y author.",
+                ((ApiResponse<?>) response.getBody()).getMessage());
+    }
+
+    private static BookSummaryDTO summary(Book book) {
+        return new BookSummaryDTO(book.getId(), book.getTitle(), book.getAuthor(), book.getGenre(),
+                book.getAvailability());
+    }
 }
@@ -0,0 +1,152 @@
+package com.libraryproject.library_project.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.libraryproject.library_project.dto.LoanDTO;
+import com.libraryproject.library_project.entities.Book;
+import com.libraryproject.library_project.entities.User;
+import com.libraryproject.library_project.repositories.BookRepository;
+import com.libraryproject.library_project.repositories.LoanRepository;
+import com.libraryproject.library_project.repositories.UserRepository;
+
+/*
+ * Préstamos simultáneos contra una base H2 real: cada libro debe prestarse una
+ * sola vez sin importar cuántas peticiones compitan por él.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:loan-concurrency;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.datasource.hikari.maximum-pool-size=20" })
+public class LoanServiceConcurrencyTest {
+
+    private static final long USER_ID = 1L;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        loanRepository.deleteAll();
+        if (!userRepository.existsById(USER_ID)) {
+            User user = new User();
+            user.setId(USER_ID);
+            user.setName("Usuario concurrente");
+            user.setEmail("concurrente@example.com");
+            userRepository.save(user);
+        }
+    }
+
+    /*
+     * Probar que miles de préstamos simultáneos sobre los mismos libros dejan
+     * exactamente un préstamo exitoso por libro.
+     */
+    @Test
+    void testConcurrentCheckoutsLendEachBookOnce() throws Exception {
+        List<Long> bookIds = createBooks(20);
+        int attemptsPerBook = 100;
+
+        Map<Long, AtomicInteger> successes = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(64)) {
+            for (int attempt = 0; attempt < attemptsPerBook; attempt++) {
+                for (Long bookId : bookIds) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        ResponseEntity<?> response = loanService.createLoan(loanFor(bookId));
+                        if (response.getStatusCode() == HttpStatus.OK) {
+                            successes.computeIfAbsent(bookId, id -> new AtomicInteger()).incrementAndGet();
+                        }
+                        return null;
+                    }));
+                }
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        for (Long bookId : bookIds) {
+            assertEquals(1, successes.get(bookId).get(), "Préstamos exitosos del libro " + bookId);
+            assertFalse(bookRepository.findById(bookId).get().getAvailability());
+        }
+        assertEquals(bookIds.size(), loanRepository.count());
+    }
+
+    /*
+     * Mide préstamos por segundo con muchos hilos sobre libros distintos. Solo
+     * corre con -Dbenchmarks=true.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    void benchmarkCheckoutThroughput() throws Exception {
+        List<Long> bookIds = createBooks(20_000);
+
+        long started = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(32)) {
+            List<Future<ResponseEntity<?>>> futures = new ArrayList<>();
+            for (Long bookId : bookIds) {
+                futures.add(executor.submit(() -> loanService.createLoan(loanFor(bookId))));
+            }
+            for (Future<ResponseEntity<?>> future : futures) {
+                assertEquals(HttpStatus.OK, future.get().getStatusCode());
+            }
+        }
+        double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+        System.out.printf("Préstamos: %d en %.2f s (%.0f préstamos/s)%n", bookIds.size(), seconds,
+                bookIds.size() / seconds);
+    }
+
+    private List<Long> createBooks(int count) {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Book book = new Book();
+            book.setTitle("Libro " + i);
+            book.setAuthor("Autor");
+            book.setGenre("Novela");
+            books.add(book);
+        }
+        List<Long> ids = new ArrayList<>();
+        bookRepository.saveAll(books).forEach(book -> ids.add(book.getId()));
+        return ids;
+    }
+
+    private LoanDTO loanFor(Long bookId) {
+        LoanDTO loanDTO = new LoanDTO();
+        loanDTO.setBookId(bookId);
+        loanDTO.setUserId(USER_ID);
+        loanDTO.setLoanDate(LocalDate.now());
+        loanDTO.setReturnDate(LocalDate.now().plusDays(15));
+        return loanDTO;
+    }
+}
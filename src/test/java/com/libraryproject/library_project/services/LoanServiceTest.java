@@ -2,11 +2,16 @@ package com.libraryproject.library_project.services;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -15,17 +20,29 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryproject.library_project.cache.CatalogCache;
+import com.libraryproject.library_project.dto.BulkLoanDTO;
 import com.libraryproject.library_project.dto.LoanDTO;
+import com.libraryproject.library_project.dto.LoanResultDTO;
+import com.libraryproject.library_project.dto.UserLoanDTO;
 import com.libraryproject.library_project.entities.Book;
 import com.libraryproject.library_project.entities.Loan;
 import com.libraryproject.library_project.entities.User;
+import com.libraryproject.library_project.events.BookChangedEvent;
+import com.libraryproject.library_project.events.LoanChangedEvent;
+import com.libraryproject.library_project.metrics.LibraryMetrics;
 import com.libraryproject.library_project.repositories.BookRepository;
 import com.libraryproject.library_project.repositories.LoanRepository;
 import com.libraryproject.library_project.repositories.UserRepository;
 import com.libraryproject.library_project.utils.ApiResponse;
+import com.libraryproject.library_project.utils.CursorPage;
 
 public class LoanServiceTest {
 
@@ -38,6 +55,18 @@ public class LoanServiceTest {
     @Mock
     private LoanRepository loanRepository;
 
+    @Mock
+    private CatalogCache catalogCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private LibraryMetrics libraryMetrics;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
     @InjectMocks
     private LoanService loanService;
 
@@ -92,10 +121,11 @@ public class LoanServiceTest {
     @Test
     void testCreateLoan() {
         // Simulamos que el libro está disponible
-        when(bookRepository.findById(anyLong())).thenReturn(Optional.of(book));
+        when(catalogCache.findBook(anyLong())).thenReturn(Optional.of(book));
+        when(bookRepository.markUnavailable(anyLong(), any())).thenReturn(1);
 
         // Simulamos que el usuario ya existe
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(user));
+        when(catalogCache.findUser(anyLong())).thenReturn(Optional.of(user));
 
         // Simulamos guardar el préstamo
         when(loanRepository.save(any())).thenReturn(new Loan());
@@ -106,6 +136,12 @@ public class LoanServiceTest {
         // Verificamos que la respuesta sea la esperada
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
+
+        // Verificamos que se notifique el cambio de disponibilidad del libro y el préstamo
+        verify(eventPublisher).publishEvent(any(BookChangedEvent.class));
+        verify(eventPublisher).publishEvent(any(LoanChangedEvent.class));
+        // Verificamos que se cuente el préstamo registrado
+        verify(libraryMetrics).loanOutcome(LibraryMetrics.CREATED);
     }
 
     /*
@@ -118,7 +154,7 @@ public class LoanServiceTest {
     void testCreateLoanBookNotAvailable() {
         // Simulamos que el libro no está disponible
         book.setAvailability(false);
-        when(bookRepository.findById(anyLong())).thenReturn(Optional.of(book));
+        when(catalogCache.findBook(anyLong())).thenReturn(Optional.of(book));
 
         // Llamamos al método createLoan
         ResponseEntity<?> response = loanService.createLoan(loanDTO);
@@ -128,6 +164,26 @@ public class LoanServiceTest {
         assertEquals("El libro no esta disponible", ((ApiResponse<?>) response.getBody()).getMessage());
     }
 
+    /*
+     * Probar el comportamiento del método createLoan cuando otro préstamo toma el
+     * libro entre la lectura y la reserva.
+     * Se espera que el préstamo se rechace sin registrarse.
+     */
+    @Test
+    void testCreateLoanLosesRace() {
+        // La caché todavía muestra el libro disponible, pero la reserva falla
+        when(catalogCache.findBook(anyLong())).thenReturn(Optional.of(book));
+        when(bookRepository.markUnavailable(anyLong(), any())).thenReturn(0);
+
+        ResponseEntity<?> response = loanService.createLoan(loanDTO);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("El libro no esta disponible", ((ApiResponse<?>) response.getBody()).getMessage());
+        verify(loanRepository, never()).save(any());
+        verify(eventPublisher, never()).publishEvent(any(BookChangedEvent.class));
+        verify(libraryMetrics).loanOutcome(LibraryMetrics.UNAVAILABLE);
+    }
+
     /*
      * Probar el comportamiento del método createLoan cuando el usuario no existe.
      * Se espera que el sistema cree un nuevo usuario y registre el préstamo.
@@ -135,11 +191,12 @@ public class LoanServiceTest {
     @Test
     void testCreateLoanUserNotFound() {
         // Simulamos que el usuario no existe
-        when(bookRepository.findById(anyLong())).thenReturn(Optional.of(book));
-        when(userRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(catalogCache.findBook(anyLong())).thenReturn(Optional.of(book));
+        when(bookRepository.markUnavailable(anyLong(), any())).thenReturn(1);
+        when(catalogCache.findUser(anyLong())).thenReturn(Optional.empty());
 
         // Simulamos que se guarda un nuevo usuario
-        when(userRepository.save(any(User.class))).thenReturn(user);
+        when(catalogCache.saveUser(any(User.class))).thenReturn(user);
 
         // Simulamos guardar el préstamo
         when(loanRepository.save(any())).thenReturn(new Loan());
@@ -152,6 +209,139 @@ public class LoanServiceTest {
         assertNotNull(response.getBody());
     }
 
+    /*
+     * Probar el comportamiento del método returnBook cuando el libro está
+     * prestado.
+     * Se espera que se cierre el préstamo y el libro vuelva a estar disponible.
+     */
+    @Test
+    void testReturnBook() {
+        book.setAvailability(false);
+        when(catalogCache.findBook(anyLong())).thenReturn(Optional.of(book));
+        when(loanRepository.markReturned(anyLong(), any())).thenReturn(1);
+        when(bookRepository.markAvailable(anyLong(), any())).thenReturn(1);
+
+        ResponseEntity<?> response = loanService.returnBook(book.getId());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("Devolución registrada exitosamente", ((ApiResponse<?>) response.getBody()).getMessage());
+        verify(bookRepository).markAvailable(eq(book.getId()), any());
+        verify(catalogCache).evictBook(book.getId());
+        verify(eventPublisher).publishEvent(any(BookChangedEvent.class));
+        verify(eventPublisher).publishEvent(any(LoanChangedEvent.class));
+        verify(libraryMetrics).loanOutcome(LibraryMetrics.RETURNED);
+    }
+
+    /*
+     * Probar el comportamiento del método returnBook cuando el libro no tiene un
+     * préstamo activo.
+     * Se espera un error y que la disponibilidad no cambie.
+     */
+    @Test
+    void testReturnBookNotLoaned() {
+        when(catalogCache.findBook(anyLong())).thenReturn(Optional.of(book));
+        when(loanRepository.markReturned(anyLong(), any())).thenReturn(0);
+
+        ResponseEntity<?> response = loanService.returnBook(book.getId());
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("El libro no está prestado", ((ApiResponse<?>) response.getBody()).getMessage());
+        verify(bookRepository, never()).markAvailable(anyLong(), any());
+        verify(eventPublisher, never()).publishEvent(any(BookChangedEvent.class));
+    }
+
+    /*
+     * Probar el comportamiento del método returnBook cuando el libro no existe.
+     */
+    @Test
+    void testReturnBookNotFound() {
+        when(catalogCache.findBook(anyLong())).thenReturn(Optional.empty());
+
+        ResponseEntity<?> response = loanService.returnBook(99L);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("El libro no existe", ((ApiResponse<?>) response.getBody()).getMessage());
+        verify(loanRepository, never()).markReturned(anyLong(), any());
+    }
+
+    /*
+     * Probar el comportamiento del método createLoans con libros disponibles, uno
+     * prestado, uno inexistente y uno repetido.
+     * Se espera un resultado por libro en el orden de la solicitud y una sola
+     * inserción en lote.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCreateLoans() {
+        Book lent = new Book();
+        lent.setId(2L);
+        lent.setAvailability(false);
+        Book other = new Book();
+        other.setId(3L);
+        other.setAvailability(true);
+
+        when(bookRepository.findAllByIdForUpdate(any())).thenReturn(List.of(book, lent, other));
+        when(bookRepository.markAllUnavailable(any(), any())).thenReturn(2);
+        when(catalogCache.findUser(anyLong())).thenReturn(Optional.of(user));
+        when(loanRepository.insertAll(any())).thenAnswer(invocation -> {
+            List<Loan> loans = invocation.getArgument(0);
+            for (int i = 0; i < loans.size(); i++) {
+                loans.get(i).setId(100L + i);
+            }
+            return loans;
+        });
+
+        BulkLoanDTO bulkLoanDTO = bulkLoan(Arrays.asList(1L, 2L, 9L, 3L, 1L));
+        ResponseEntity<?> response = loanService.createLoans(bulkLoanDTO);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        ApiResponse<List<LoanResultDTO>> body = (ApiResponse<List<LoanResultDTO>>) response.getBody();
+        assertEquals("Se registraron 2 de 5 préstamos.", body.getMessage());
+
+        List<LoanResultDTO> results = body.getData();
+        assertEquals(5, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(100L, results.get(0).getLoanId());
+        assertEquals("El libro no esta disponible", results.get(1).getMessage());
+        assertEquals("El libro no existe", results.get(2).getMessage());
+        assertEquals(101L, results.get(3).getLoanId());
+        assertEquals("El libro está repetido en la solicitud", results.get(4).getMessage());
+
+        // Una sola carga de libros, una sola reserva y un solo lote de inserciones
+        verify(bookRepository, times(1)).findAllByIdForUpdate(any());
+        verify(bookRepository, times(1)).markAllUnavailable(any(), any());
+        verify(loanRepository, times(1)).insertAll(any());
+        verify(loanRepository, never()).save(any());
+        verify(eventPublisher, times(2)).publishEvent(any(BookChangedEvent.class));
+    }
+
+    /*
+     * Probar el comportamiento del método createLoans cuando ningún libro está
+     * disponible. Se espera BAD_REQUEST sin reservar ni insertar nada.
+     */
+    @Test
+    void testCreateLoansNoneAvailable() {
+        book.setAvailability(false);
+        when(bookRepository.findAllByIdForUpdate(any())).thenReturn(List.of(book));
+
+        ResponseEntity<?> response = loanService.createLoans(bulkLoan(List.of(1L)));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(bookRepository, never()).markAllUnavailable(any(), any());
+        verify(loanRepository, never()).insertAll(any());
+    }
+
+    /*
+     * Probar el comportamiento del método createLoans sin libros.
+     */
+    @Test
+    void testCreateLoansWithoutBooks() {
+        ResponseEntity<?> response = loanService.createLoans(bulkLoan(List.of()));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Debe indicar al menos un libro.", ((ApiResponse<?>) response.getBody()).getMessage());
+    }
+
     /*
      * Probar el comportamiento del método listLoans cuando se encuentran préstamos.
      * Se espera que se retorne una lista de préstamos con los detalles de usuario y
@@ -160,9 +350,9 @@ public class LoanServiceTest {
     @Test
     void testListLoans() {
         // Simulamos que se encuentran préstamos
-        when(loanRepository.findAll()).thenReturn(Arrays.asList(loan));
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(user));
-        when(bookRepository.findById(anyLong())).thenReturn(Optional.of(book));
+        LoanDTO loanDetails = new LoanDTO(loan.getId(), user.getName(), user.getEmail(), user.getId(),
+                user.getPhone(), user.getAddress(), book.getId(), loan.getLoanDate(), loan.getReturnDate());
+        when(loanRepository.findAllLoanDetails()).thenReturn(Arrays.asList(loanDetails));
 
         // Llamamos al método listLoans
         ResponseEntity<?> response = loanService.listLoans();
@@ -170,6 +360,10 @@ public class LoanServiceTest {
         // Verificamos que la respuesta sea la esperada
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
+
+        // Verificamos que no se consulten usuarios ni libros uno por uno
+        verify(userRepository, never()).findById(anyLong());
+        verify(bookRepository, never()).findById(anyLong());
     }
 
     /*
@@ -180,7 +374,7 @@ public class LoanServiceTest {
     @Test
     void testListLoansNoLoans() {
         // Simulamos que no hay préstamos
-        when(loanRepository.findAll()).thenReturn(Arrays.asList());
+        when(loanRepository.findAllLoanDetails()).thenReturn(Arrays.asList());
 
         // Llamamos al método listLoans
         ResponseEntity<?> response = loanService.listLoans();
@@ -205,4 +399,93 @@ public class LoanServiceTest {
         assertNotNull(apiResponse.getTimestamp());
     }
 
+    /*
+     * Probar el comportamiento del método listLoansPage cuando la página viene
+     * completa. Se espera que el cursor apunte al último préstamo entregado.
+     */
+    @Test
+    void testListLoansPage() {
+        LoanDTO loanDetails = new LoanDTO(loan.getId(), user.getName(), user.getEmail(), user.getId(),
+                user.getPhone(), user.getAddress(), book.getId(), loan.getLoanDate(), loan.getReturnDate());
+        when(loanRepository.findLoanDetailsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(loanDetails));
+
+        ResponseEntity<?> response = loanService.listLoansPage(null, 1);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        CursorPage<?> page = (CursorPage<?>) ((ApiResponse<?>) response.getBody()).getData();
+        assertEquals(1, page.getItems().size());
+        assertEquals(String.valueOf(loan.getId()), page.getNextCursor());
+    }
+
+    /*
+     * Probar el comportamiento del método listLoansPage con un cursor inválido.
+     */
+    @Test
+    void testListLoansPageInvalidCursor() {
+        ResponseEntity<?> response = loanService.listLoansPage("abc", 50);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("El cursor no es válido.", ((ApiResponse<?>) response.getBody()).getMessage());
+    }
+
+    /*
+     * Probar el comportamiento del método listUserLoans con un cursor. Se espera
+     * que se pida la página anterior a ese préstamo y que el nuevo cursor sea la
+     * fecha y el id del último entregado.
+     */
+    @Test
+    void testListUserLoans() {
+        UserLoanDTO history = new UserLoanDTO(7L, book.getId(), book.getTitle(), book.getAuthor(),
+                LocalDate.parse("2025-02-20"), LocalDate.parse("2025-03-01"), null);
+        when(loanRepository.findUserLoansBefore(eq(user.getId()), eq(LocalDate.parse("2025-02-25")), eq(9L),
+                any(Pageable.class))).thenReturn(List.of(history));
+
+        ResponseEntity<?> response = loanService.listUserLoans(user.getId(), "2025-02-25:9", 1);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        CursorPage<?> page = (CursorPage<?>) ((ApiResponse<?>) response.getBody()).getData();
+        assertEquals(List.of(history), page.getItems());
+        assertEquals("2025-02-20:7", page.getNextCursor());
+        verify(loanRepository, never()).findUserLoans(anyLong(), any());
+    }
+
+    /*
+     * Probar el comportamiento del método listUserLoans con un cursor inválido.
+     */
+    @Test
+    void testListUserLoansInvalidCursor() {
+        ResponseEntity<?> response = loanService.listUserLoans(user.getId(), "2025-02-25", 50);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("El cursor no es válido.", ((ApiResponse<?>) response.getBody()).getMessage());
+    }
+
+    /*
+     * Probar que writeAllLoans escribe un préstamo por línea.
+     */
+    @Test
+    void testWriteAllLoans() throws Exception {
+        LoanDTO loanDetails = new LoanDTO(loan.getId(), user.getName(), user.getEmail(), user.getId(),
+                user.getPhone(), user.getAddress(), book.getId(), loan.getLoanDate(), loan.getReturnDate());
+        when(loanRepository.streamAllLoanDetails()).thenReturn(Stream.of(loanDetails, loanDetails));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        loanService.writeAllLoans(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"userName\":\"Test User\""));
+    }
+
+    private BulkLoanDTO bulkLoan(List<Long> bookIds) {
+        BulkLoanDTO bulkLoanDTO = new BulkLoanDTO();
+        bulkLoanDTO.setUserId(user.getId());
+        bulkLoanDTO.setUserName(user.getName());
+        bulkLoanDTO.setUserEmail(user.getEmail());
+        bulkLoanDTO.setBookIds(bookIds);
+        bulkLoanDTO.setLoanDate(LocalDate.parse("2025-02-25"));
+        bulkLoanDTO.setReturnDate(LocalDate.parse("2025-03-01"));
+        return bulkLoanDTO;
+    }
+
 }
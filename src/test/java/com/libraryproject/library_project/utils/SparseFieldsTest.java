@@ -0,0 +1,81 @@
+package com.libraryproject.library_project.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJacksonValue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryproject.library_project.config.JacksonConfig;
+import com.libraryproject.library_project.dto.BookSummaryDTO;
+
+public class SparseFieldsTest {
+
+    private final ObjectMapper objectMapper = objectMapper();
+
+    private final ApiResponse<List<BookSummaryDTO>> books = new ApiResponse<>("Libros",
+            List.of(new BookSummaryDTO(1L, "Rayuela", "Julio Cortázar", "Novela", true)));
+
+    /*
+     * Probar que sin ?fields= se escriben todos los campos del DTO.
+     */
+    @Test
+    void testAllFieldsByDefault() throws Exception {
+        String json = objectMapper.writeValueAsString(books);
+
+        assertTrue(json.contains("\"author\":\"Julio Cortázar\""));
+        assertTrue(json.contains("\"availability\":true"));
+    }
+
+    /*
+     * Probar que con ?fields= solo se escriben los campos pedidos de cada libro y
+     * el resto de la respuesta no cambia.
+     */
+    @Test
+    void testSelectedFields() throws Exception {
+        ResponseEntity<?> response = SparseFields.select(ResponseEntity.status(HttpStatus.OK).body(books),
+                " id, title ,");
+        MappingJacksonValue body = (MappingJacksonValue) response.getBody();
+
+        String json = objectMapper.writer(body.getFilters()).writeValueAsString(body.getValue());
+
+        assertTrue(json.contains("\"data\":[{\"id\":1,\"title\":\"Rayuela\"}]"));
+        assertTrue(json.contains("\"message\":\"Libros\""));
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+    }
+
+    /*
+     * Probar que sin campos la respuesta se devuelve igual.
+     */
+    @Test
+    void testWithoutFieldsKeepsResponse() {
+        ResponseEntity<?> response = ResponseEntity.ok(books);
+
+        assertSame(response, SparseFields.select(response, null));
+        assertSame(response, SparseFields.select(response, " , "));
+        assertEquals(Set.of("id", "title"), SparseFields.parse("id,title"));
+    }
+
+    /*
+     * Probar que un ObjectMapper sin la configuración de la aplicación sigue
+     * escribiendo los DTO completos.
+     */
+    @Test
+    void testPlainObjectMapper() throws Exception {
+        String json = new ObjectMapper().writeValueAsString(books.getData());
+
+        assertTrue(json.contains("\"genre\":\"Novela\""));
+    }
+
+    private static ObjectMapper objectMapper() {
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+        new JacksonConfig().sparseFieldsetCustomizer().customize(builder);
+        return builder.build();
+    }
+}